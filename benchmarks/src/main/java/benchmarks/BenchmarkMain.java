@@ -0,0 +1,26 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark and writes the results to jmh-result.json, or passes any
+ * arguments straight to JMH's own command line.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        Options options = new OptionsBuilder()
+                .include("benchmarks\\..*")
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import model.GameData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import websocket.messages.LoadMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What WebsocketHandler.handleMakeMove spends per connected session after a move. Its send
+ * serializes the message again for every session, so the cost grows with the observer count.
+ * The socket write is left out; the Blackhole stands in for it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+    @Param({"1", "10", "100"})
+    public int observers;
+
+    private static final Gson GSON = new Gson();
+    private LoadMessage load;
+    private NotificationMessage notification;
+
+    @Setup
+    public void setup() {
+        load = new LoadMessage(new GameData(1, "white", "black", "bench", Positions.named("middlegame")));
+        notification = new NotificationMessage("white moved: e2 -> e4");
+    }
+
+    @Benchmark
+    public void fanOut(Blackhole blackhole) {
+        for(int i = 0; i < observers; i++) {
+            send(blackhole, load);
+            if(i != 0) { //everyone but the mover is told about the move
+                send(blackhole, notification);
+            }
+        }
+    }
+
+    private static void send(Blackhole blackhole, ServerMessage message) {
+        blackhole.consume(GSON.toJson(message));
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rules work the server does for every MAKE_MOVE: validating moves, playing them and
+ * testing for the end of the game
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+    @Param({"opening", "middlegame", "endgame", "checkmate"})
+    public String position;
+
+    private ChessGame game;
+    private ChessGame shuffle;
+    private final ChessMove[] knightShuffle = {
+            Positions.move("g1f3"), Positions.move("g8f6"), Positions.move("f3g1"), Positions.move("f6g8")
+    };
+
+    @Setup
+    public void setup() {
+        game = Positions.named(position);
+        shuffle = new ChessGame();
+    }
+
+    /**
+     * validMoves for every piece of the side to move, as the client's highlight and the
+     * server's move check call it
+     */
+    @Benchmark
+    public void validMovesAllPieces(Blackhole blackhole) {
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        for(int square = 0; square < 64; square++) {
+            ChessPiece piece = game.getBoard().getPiece(square);
+            if(piece != null && piece.getTeamColor() == turn) {
+                blackhole.consume(game.validMoves(ChessPosition.of(square)));
+            }
+        }
+    }
+
+    /**
+     * Four makeMove calls that bring the knights out and back, ending where they started
+     */
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public ChessGame makeMove() throws InvalidMoveException {
+        for(ChessMove move : knightShuffle) {
+            shuffle.makeMove(move);
+        }
+        return shuffle;
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.engine.Engine;
+import chess.engine.MaterialEvaluator;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-time engine searches at each thread count. The nodes counter reports nodes per
+ * second, so comparing it across thread counts shows how the Lazy SMP search scales.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"middlegame"})
+    public String position;
+
+    private Engine engine;
+    private ChessGame game;
+
+    /**
+     * Reported by JMH as a rate, nodes per second over the iteration
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setup() {
+        engine = new Engine(new MaterialEvaluator(), new TranspositionTable(64), threads);
+        game = Positions.named(position);
+    }
+
+    @Benchmark
+    public SearchResult search(Nodes counter) {
+        SearchResult result = engine.search(game, SearchLimits.millis(200));
+        counter.nodes += result.nodes();
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.engine.Engine;
+import chess.engine.Evaluator;
+import chess.engine.NnueEvaluator;
+import chess.engine.NnueNetwork;
+import chess.engine.PawnStructureEvaluator;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The classical evaluator against the neural one: evaluations per second on a fixed position,
+ * and nodes per second in a single-threaded search, where the network's accumulators are
+ * updated on every move. Pass a trained network with -p network=path/to/net.bin to compare
+ * at equal strength; without one an untrained network of the usual width measures speed only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class EvaluatorBenchmark {
+    @Param({"classical", "nnue"})
+    public String evaluator;
+
+    @Param({""})
+    public String network;
+
+    @Param({"middlegame"})
+    public String position;
+
+    private Evaluator scorer;
+    private Engine engine;
+    private ChessGame game;
+
+    /**
+     * Reported by JMH as a rate, nodes per second over the iteration
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        if(evaluator.equals("nnue")) {
+            scorer = new NnueEvaluator(network.isEmpty() ? NnueNetwork.random(256, 1) : NnueNetwork.load(Path.of(network)));
+        }else {
+            scorer = new PawnStructureEvaluator();
+        }
+        engine = new Engine(scorer, new TranspositionTable(64), 1);
+        game = Positions.named(position);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return scorer.evaluate(game);
+    }
+
+    @Benchmark
+    public SearchResult search(Nodes counter) {
+        SearchResult result = engine.search(game, SearchLimits.millis(200));
+        counter.nodes += result.nodes();
+        return result;
+    }
+}
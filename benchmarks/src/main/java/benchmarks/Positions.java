@@ -0,0 +1,48 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+/**
+ * Games set up in the positions the benchmarks run on
+ */
+final class Positions {
+    private Positions() { }
+
+    /**
+     * @param name opening, middlegame, endgame or checkmate
+     */
+    static ChessGame named(String name) {
+        return switch (name) {
+            case "opening" -> play("e2e4", "e7e5", "g1f3", "b8c6");
+            //Kiwipete, a busy position with every kind of move
+            case "middlegame" -> ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            case "endgame" -> ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+            //fool's mate
+            case "checkmate" -> play("f2f3", "e7e5", "g2g4", "d8h4");
+            default -> throw new IllegalArgumentException("Unknown position: " + name);
+        };
+    }
+
+    static ChessMove move(String text) {
+        return new ChessMove(square(text.substring(0, 2)), square(text.substring(2, 4)), null);
+    }
+
+    private static ChessPosition square(String text) {
+        return ChessPosition.of(text.charAt(1) - '0', text.charAt(0) - 'a' + 1);
+    }
+
+    private static ChessGame play(String... moves) {
+        ChessGame game = new ChessGame();
+        try {
+            for(String move : moves) {
+                game.makeMove(move(move));
+            }
+        } catch (InvalidMoveException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return game;
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import model.GameData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson round trips of a game, the way MySqlGameDAO stores and loads the gameData column, next to FEN
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private GameData gameData;
+    private String json;
+    private String fen;
+
+    @Setup
+    public void setup() {
+        gameData = new GameData(1, "white", "black", "bench", Positions.named(position));
+        json = new Gson().toJson(gameData.game());
+        fen = gameData.game().toFen();
+    }
+
+    //MySqlGameDAO builds a new Gson for every call, so these do too
+    @Benchmark
+    public String serializeGame() {
+        return new Gson().toJson(gameData.game());
+    }
+
+    @Benchmark
+    public ChessGame deserializeGame() {
+        return new Gson().fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTrip() {
+        return new Gson().fromJson(new Gson().toJson(gameData.game()), ChessGame.class);
+    }
+
+    //FEN, the compact alternative to the Gson dump
+    @Benchmark
+    public String toFen() {
+        return gameData.game().toFen();
+    }
+
+    @Benchmark
+    public ChessGame fromFen() {
+        return ChessGame.fromFen(fen);
+    }
+}
@@ -0,0 +1,84 @@
+package chess.engine;
+
+import chess.PieceListener;
+import jdk.incubator.vector.ShortVector;
+
+/**
+ * The hidden layer of an NnueNetwork for one board, seen from each side, kept up to date as
+ * the board's pieces come and go. Adding or removing a piece adds or subtracts one weight
+ * column per side, so a move costs a few vector adds instead of a full pass over the pieces.
+ */
+final class NnueAccumulator implements PieceListener {
+    //Network input order for the pieces: pawn, knight, bishop, rook, queen, king, by PieceType ordinal
+    private static final int[] INPUT_TYPE = {5, 4, 2, 1, 3, 0};
+    //input feature of piece p (color * 6 + type) on square s, as white sees it and as black sees it
+    private static final int[] WHITE_FEATURES = new int[12 * 64];
+    private static final int[] BLACK_FEATURES = new int[12 * 64];
+
+    static {
+        for(int piece = 0; piece < 12; piece++) {
+            int color = piece / 6;
+            int type = INPUT_TYPE[piece % 6];
+            for(int square = 0; square < 64; square++) {
+                //each side sees its own pieces first and its own back row at the bottom
+                WHITE_FEATURES[piece * 64 + square] = color * 384 + type * 64 + square;
+                BLACK_FEATURES[piece * 64 + square] = (1 - color) * 384 + type * 64 + (square ^ 56);
+            }
+        }
+    }
+
+    final NnueNetwork network;
+    final short[] white;
+    final short[] black;
+
+    NnueAccumulator(NnueNetwork network) {
+        this.network = network;
+        white = new short[network.hidden];
+        black = new short[network.hidden];
+    }
+
+    @Override
+    public void reset() {
+        System.arraycopy(network.inputBiases, 0, white, 0, network.hidden);
+        System.arraycopy(network.inputBiases, 0, black, 0, network.hidden);
+    }
+
+    @Override
+    public void pieceAdded(int piece, int square) {
+        update(white, WHITE_FEATURES[piece * 64 + square], 1);
+        update(black, BLACK_FEATURES[piece * 64 + square], 1);
+    }
+
+    @Override
+    public void pieceRemoved(int piece, int square) {
+        update(white, WHITE_FEATURES[piece * 64 + square], -1);
+        update(black, BLACK_FEATURES[piece * 64 + square], -1);
+    }
+
+    //Adds (sign 1) or subtracts (sign -1) a feature's weight column
+    private void update(short[] accumulators, int feature, int sign) {
+        short[] weights = network.inputWeights;
+        int offset = feature * network.hidden;
+        int bound = NnueNetwork.SHORTS.loopBound(network.hidden);
+        int i = 0;
+        if(sign > 0) {
+            for(; i < bound; i += NnueNetwork.SHORTS.length()) {
+                ShortVector.fromArray(NnueNetwork.SHORTS, accumulators, i)
+                        .add(ShortVector.fromArray(NnueNetwork.SHORTS, weights, offset + i))
+                        .intoArray(accumulators, i);
+            }
+            for(; i < network.hidden; i++) {
+                accumulators[i] += weights[offset + i];
+            }
+        }else {
+            for(; i < bound; i += NnueNetwork.SHORTS.length()) {
+                ShortVector.fromArray(NnueNetwork.SHORTS, accumulators, i)
+                        .sub(ShortVector.fromArray(NnueNetwork.SHORTS, weights, offset + i))
+                        .intoArray(accumulators, i);
+            }
+            for(; i < network.hidden; i++) {
+                accumulators[i] -= weights[offset + i];
+            }
+        }
+    }
+}
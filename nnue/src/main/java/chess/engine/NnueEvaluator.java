@@ -0,0 +1,40 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+/**
+ * Scores positions with an NnueNetwork instead of hand-written terms. The first evaluation of
+ * a board attaches accumulators to it as its PieceListener, a full pass done once at the root;
+ * after that every move the search plays or takes back updates them incrementally, and Engine
+ * detaches them when the search ends. Evaluating a board directly leaves them attached. The
+ * evaluator only holds the read-only network, so search threads can share it, each board
+ * carrying its own accumulators.
+ */
+public class NnueEvaluator implements Evaluator {
+    private final NnueNetwork network;
+
+    public NnueEvaluator(NnueNetwork network) {
+        this.network = network;
+    }
+
+    public NnueNetwork getNetwork() {
+        return network;
+    }
+
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        NnueAccumulator accumulator = board.getPieceListener() instanceof NnueAccumulator attached
+                && attached.network == network ? attached : attach(board);
+        return game.getTeamTurn() == ChessGame.TeamColor.WHITE
+                ? network.output(accumulator.white, accumulator.black)
+                : network.output(accumulator.black, accumulator.white);
+    }
+
+    private NnueAccumulator attach(ChessBoard board) {
+        NnueAccumulator accumulator = new NnueAccumulator(network);
+        board.setPieceListener(accumulator);
+        return accumulator;
+    }
+}
@@ -0,0 +1,131 @@
+package chess.engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Quantised weights of a (768 -> N)x2 -> 1 network: each side's pieces, seen from that side,
+ * feed a hidden layer of N int16 accumulators; the two layers, side to move first, go through
+ * a clipped ReLU to one output. The dense arithmetic runs on the Vector API, which compiles to
+ * AVX2 or AVX-512 where the CPU has it, and needs --add-modules jdk.incubator.vector.
+ * <p>
+ * Files use the layout the bullet trainer writes for this network: little-endian int16 input
+ * weights [768][N], input biases [N], output weights [2N] and the output bias, zero-padded to
+ * a multiple of 64 bytes. Activations are scaled by QA, output weights by QB, and the output
+ * is turned into centipawns by SCALE.
+ */
+public final class NnueNetwork {
+    public static final int INPUTS = 768;
+    static final int QA = 255;
+    static final int QB = 64;
+    static final int SCALE = 400;
+
+    static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    //same width as SHORTS, so one ShortVector widens into two of these
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    final int hidden;
+    //feature f's column starts at f * hidden
+    final short[] inputWeights;
+    final short[] inputBiases;
+    final short[] outputWeights;
+    final int outputBias;
+
+    private NnueNetwork(int hidden, short[] weights) {
+        this.hidden = hidden;
+        inputWeights = new short[INPUTS * hidden];
+        inputBiases = new short[hidden];
+        outputWeights = new short[2 * hidden];
+        System.arraycopy(weights, 0, inputWeights, 0, inputWeights.length);
+        System.arraycopy(weights, inputWeights.length, inputBiases, 0, hidden);
+        System.arraycopy(weights, inputWeights.length + hidden, outputWeights, 0, 2 * hidden);
+        outputBias = weights[(INPUTS + 3) * hidden];
+    }
+
+    /**
+     * Reads a network, working out the hidden layer size from the file's length
+     *
+     * @param file weights in the layout described above
+     * @return the network
+     * @throws IOException if the file cannot be read or its length fits no hidden layer size
+     */
+    public static NnueNetwork load(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        int values = bytes.length / 2;
+        int hidden = (values - 1) / (INPUTS + 3);
+        //padding to 64 bytes adds at most 31 values, fewer than one more hidden unit needs
+        if(hidden < 1 || bytes.length % 2 != 0 || values - 1 - hidden * (INPUTS + 3) >= 32) {
+            throw new IOException("Not a (768 -> N)x2 -> 1 network: " + file);
+        }
+        short[] weights = new short[values];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(weights);
+        return new NnueNetwork(hidden, weights);
+    }
+
+    /**
+     * Untrained network with small random weights, for measuring speed without a weights file
+     *
+     * @param hidden accumulators per side
+     * @param seed   random seed
+     */
+    public static NnueNetwork random(int hidden, long seed) {
+        if(hidden < 1) {
+            throw new IllegalArgumentException("Network needs at least one hidden unit");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] weights = new short[(INPUTS + 3) * hidden + 1];
+        for(int i = 0; i < weights.length; i++) {
+            weights[i] = (short) random.nextInt(-64, 65);
+        }
+        return new NnueNetwork(hidden, weights);
+    }
+
+    /**
+     * @return accumulators per side
+     */
+    public int getHidden() {
+        return hidden;
+    }
+
+    /**
+     * @param us   accumulators seen from the side to move
+     * @param them accumulators seen from the other side
+     * @return centipawns for the side to move
+     */
+    int output(short[] us, short[] them) {
+        long sum = (long) dot(us, 0) + dot(them, hidden) + outputBias;
+        return (int) (sum * SCALE / (QA * QB));
+    }
+
+    //Clipped ReLU of the accumulators dotted with the output weights from offset on
+    private int dot(short[] accumulators, int offset) {
+        IntVector sum = IntVector.zero(INTS);
+        int bound = SHORTS.loopBound(hidden);
+        int i = 0;
+        for(; i < bound; i += SHORTS.length()) {
+            ShortVector active = ShortVector.fromArray(SHORTS, accumulators, i)
+                    .lanewise(VectorOperators.MAX, (short) 0).lanewise(VectorOperators.MIN, (short) QA);
+            ShortVector weights = ShortVector.fromArray(SHORTS, outputWeights, offset + i);
+            //QA times a weight overflows a short, so multiply in int lanes, one half at a time
+            for(int part = 0; part < 2; part++) {
+                IntVector a = (IntVector) active.convertShape(VectorOperators.S2I, INTS, part);
+                IntVector b = (IntVector) weights.convertShape(VectorOperators.S2I, INTS, part);
+                sum = sum.add(a.mul(b));
+            }
+        }
+        int total = sum.reduceLanes(VectorOperators.ADD);
+        for(; i < hidden; i++) {
+            total += Math.clamp(accumulators[i], 0, QA) * outputWeights[offset + i];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,96 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NnueEvaluatorTest {
+    //not a multiple of any vector length, so the scalar tails run too
+    private static final NnueNetwork NETWORK = NnueNetwork.random(40, 23);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void accumulatorsFollowTheMoves() throws InvalidMoveException {
+        NnueEvaluator evaluator = new NnueEvaluator(NETWORK);
+        SplittableRandom random = new SplittableRandom(23);
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        evaluator.evaluate(game);
+        NnueAccumulator attached = (NnueAccumulator) game.getBoard().getPieceListener();
+        for(int ply = 0; ply < 120 && !game.getGameOver(); ply++) {
+            List<ChessMove> moves = new ArrayList<>(game.legalMoves(game.getTeamTurn()));
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+
+            ChessGame rebuilt = ChessGame.fromFen(game.toFen());
+            assertEquals(evaluator.evaluate(rebuilt), evaluator.evaluate(game));
+            NnueAccumulator fresh = (NnueAccumulator) rebuilt.getBoard().getPieceListener();
+            assertArrayEquals(fresh.white, attached.white);
+            assertArrayEquals(fresh.black, attached.black);
+        }
+        assertSame(attached, game.getBoard().getPieceListener());
+    }
+
+    @Test
+    void vectorOutputMatchesScalar() {
+        ChessGame game = new ChessGame();
+        new NnueEvaluator(NETWORK).evaluate(game);
+        NnueAccumulator accumulator = (NnueAccumulator) game.getBoard().getPieceListener();
+        long sum = NETWORK.outputBias;
+        for(int i = 0; i < NETWORK.hidden; i++) {
+            sum += Math.clamp(accumulator.white[i], 0, NnueNetwork.QA) * NETWORK.outputWeights[i];
+            sum += Math.clamp(accumulator.black[i], 0, NnueNetwork.QA) * NETWORK.outputWeights[NETWORK.hidden + i];
+        }
+        assertEquals(sum * NnueNetwork.SCALE / (NnueNetwork.QA * NnueNetwork.QB), NETWORK.output(accumulator.white, accumulator.black));
+    }
+
+    @Test
+    void eachSideSeesTheBoardFromItsOwnEnd() {
+        NnueEvaluator evaluator = new NnueEvaluator(NETWORK);
+        assertEquals(evaluator.evaluate(ChessGame.fromFen("4k3/1p6/8/3P4/8/8/5PP1/2R1K3 w - - 0 1")),
+                evaluator.evaluate(ChessGame.fromFen("2r1k3/5pp1/8/8/3p4/8/1P6/4K3 b - - 0 1")));
+    }
+
+    @Test
+    void networksLoadFromFiles() throws IOException {
+        int hidden = 32;
+        int values = (NnueNetwork.INPUTS + 3) * hidden + 1;
+        ByteBuffer bytes = ByteBuffer.allocate((values * 2 + 63) / 64 * 64).order(ByteOrder.LITTLE_ENDIAN);
+        for(int i = 0; i < values; i++) {
+            bytes.putShort((short) (i % 7 - 3));
+        }
+        Path file = directory.resolve("net.bin");
+        Files.write(file, bytes.array());
+        NnueNetwork network = NnueNetwork.load(file);
+        assertEquals(hidden, network.getHidden());
+        assertEquals(-3, network.inputWeights[0]);
+
+        Path truncated = directory.resolve("short.bin");
+        Files.write(truncated, new byte[1000]);
+        assertThrows(IOException.class, () -> NnueNetwork.load(truncated));
+    }
+
+    @Test
+    void engineSearchesWithTheNetwork() {
+        Engine engine = new Engine(new NnueEvaluator(NETWORK), new TranspositionTable(1), 2);
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = engine.search(game, SearchLimits.depth(3));
+        assertEquals(new ChessMove(ChessPosition.of(1, 1), ChessPosition.of(8, 1), null), result.bestMove());
+        assertEquals("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", game.toFen());
+        assertNull(game.getBoard().getPieceListener());
+    }
+}
@@ -0,0 +1,91 @@
+package server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Queue of one game's commands, drained by at most one virtual thread at a time. Commands for
+ * the same game run one after another in the order they were posted, with no lock held
+ * between them, while different games drain in parallel.
+ */
+class GameMailbox {
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Runnable onIdle;
+
+    GameMailbox() {
+        this(() -> { });
+    }
+
+    /**
+     * @param onIdle run after a drain empties the queue, e.g. to drop the mailbox; it may race
+     *               with a new post, so it should check isIdle under the lock posts are made under
+     */
+    GameMailbox(Runnable onIdle) {
+        this.onIdle = onIdle;
+    }
+
+    void post(Runnable task) {
+        post(task, ex -> { });
+    }
+
+    /**
+     * Queues a command, handing any exception it throws to onFailure after logging it
+     *
+     * @param task      command to run
+     * @param onFailure told about a failed command, e.g. to answer the session that sent it
+     */
+    void post(Runnable task, Consumer<RuntimeException> onFailure) {
+        tasks.add(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) { //one bad command must not stall the game
+                System.err.println("Game command failed:");
+                ex.printStackTrace();
+                onFailure.accept(ex);
+            }
+        });
+        schedule();
+    }
+
+    /**
+     * @return whether no command is queued or running
+     */
+    boolean isIdle() {
+        return !draining.get() && tasks.isEmpty();
+    }
+
+    //Starts a drain unless one is already running for this game
+    private void schedule() {
+        if(draining.compareAndSet(false, true)) {
+            EXECUTOR.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            while((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) { //a failing onFailure must not stall the game either
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            draining.set(false);
+            //a task posted after the last poll but before the flag cleared would otherwise wait
+            if(!tasks.isEmpty()) {
+                schedule();
+            }else {
+                onIdle.run();
+            }
+        }
+    }
+}
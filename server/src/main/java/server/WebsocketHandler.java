@@ -5,6 +5,7 @@ import chess.ChessMove;
 import chess.ChessPosition;
 import chess.InvalidMoveException;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import dataaccess.DataAccessException;
@@ -24,12 +25,14 @@ import websocket.messages.ServerMessage;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @WebSocket
 public class WebsocketHandler {
     private static final Map<Session, Integer> GAME_SESSIONS = new ConcurrentHashMap<>();
     private static final Map<Integer, Set<Session>> IN_GAME_SESSION = new ConcurrentHashMap<>();
     private static final Map<Session, AuthData> AUTHSESSIONS = new ConcurrentHashMap<>();
+    private static final Map<Integer, GameMailbox> MAILBOXES = new ConcurrentHashMap<>();
     private static final Gson GSON = new Gson();
 
     @OnWebSocketConnect
@@ -51,6 +54,59 @@ public class WebsocketHandler {
         }
 
         String type = rawType.toUpperCase();
+        if(!obj.has("gameID")) {
+            sendError(session, new ErrorMessage("Error: Invalid game"));
+            return;
+        }
+        int gameID;
+        try {
+            gameID = obj.get("gameID").getAsInt();
+        } catch (RuntimeException ex) { //null, an object, or text that is not a number
+            sendError(session, new ErrorMessage("Error: Invalid game"));
+            return;
+        }
+        //a game only gets a mailbox once it is known to exist, so made-up IDs leave nothing behind
+        if(!MAILBOXES.containsKey(gameID) && !gameExists(session, obj, gameID)) {
+            return;
+        }
+        //each game's commands run one at a time, in the order they arrived
+        post(gameID, () -> dispatch(session, type, message),
+                ex -> sendError(session, new ErrorMessage("Error: Command failed")));
+    }
+
+    private boolean gameExists(Session session, JsonObject obj, int gameID) {
+        JsonElement token = obj.get("authToken");
+        String authToken = token != null && token.isJsonPrimitive() ? token.getAsString() : null;
+        return validateAuth(session, authToken) != null
+                && validateGameData(session, authToken, gameID) != null;
+    }
+
+    //Posting under the map's lock means a mailbox is never dropped with a command still queued on it
+    private static void post(int gameID, Runnable task, Consumer<RuntimeException> onFailure) {
+        MAILBOXES.compute(gameID, (id, mailbox) -> {
+            GameMailbox box = mailbox == null ? new GameMailbox(() -> dropIfIdle(id)) : mailbox;
+            box.post(task, onFailure);
+            return box;
+        });
+    }
+
+    //Runs once a mailbox has drained; a game nobody is in loses its mailbox, unless a command came in since
+    private static void dropIfIdle(int gameID) {
+        MAILBOXES.computeIfPresent(gameID,
+                (id, mailbox) -> mailbox.isIdle() && !IN_GAME_SESSION.containsKey(id) ? null : mailbox);
+    }
+
+    //Runs on the game's mailbox; once the last session is gone the game's set is dropped
+    private static void removeSession(int gameID, Session session) {
+        Set<Session> sessions = IN_GAME_SESSION.get(gameID);
+        if(sessions == null) { return; }
+        sessions.remove(session);
+        if(sessions.isEmpty()) {
+            IN_GAME_SESSION.remove(gameID, sessions);
+        }
+    }
+
+    private void dispatch(Session session, String type, String message) {
         switch (type) {
             case "CONNECT" -> {
                 ConnectCommand command = GSON.fromJson(message, ConnectCommand.class);
@@ -121,7 +177,7 @@ public class WebsocketHandler {
         GameData gameData = validateGameData(session, authToken, gameID);
         if(gameData == null) { return; }
 
-        Set<Session> existing = IN_GAME_SESSION.computeIfAbsent(gameID, k -> new HashSet<>());
+        Set<Session> existing = IN_GAME_SESSION.computeIfAbsent(gameID, k -> ConcurrentHashMap.newKeySet());
         String username = auth.username();
         String player = username.equals(gameData.whiteUsername())
                 ? "white player" : username.equals(gameData.blackUsername())
@@ -134,7 +190,7 @@ public class WebsocketHandler {
         }
         existing.add(session);
 
-        send(session, new LoadMessage(gameData));
+        send(session, loadMessage(gameData));
     }
 
     private void handleMakeMove(Session session, MakeMoveCommand command) {
@@ -173,6 +229,7 @@ public class WebsocketHandler {
             sendError(session, new ErrorMessage("Error: Invalid move"));
             return;
         }
+        ChessGame.GameStatus status = game.getStatus(); //makeMove ends the game on a mate or a draw
 
         try {
             Server.GAME_SERVICE.updateGame(authToken, gameData);
@@ -181,7 +238,7 @@ public class WebsocketHandler {
             return;
         }
 
-        LoadMessage load = new LoadMessage(gameData);
+        String load = GSON.toJson(loadMessage(gameData)); //written once for every session
 
         String user = auth.username();
 
@@ -189,9 +246,9 @@ public class WebsocketHandler {
         ChessPosition from = move.getStartPosition();
         ChessPosition to = move.getEndPosition();
         String moveDescription = from.toString() + " -> " + to.toString();
-        NotificationMessage notification = new NotificationMessage(String.format("%s moved: %s", user, moveDescription));
+        String notification = GSON.toJson(new NotificationMessage(String.format("%s moved: %s", user, moveDescription)));
 
-        Set<Session> existing = IN_GAME_SESSION.computeIfAbsent(gameID, k -> new HashSet<>());
+        Set<Session> existing = IN_GAME_SESSION.getOrDefault(gameID, Set.of());
         for(Session s : existing) {
             if(!s.isOpen()) { continue; }
             send(s, load);
@@ -202,15 +259,18 @@ public class WebsocketHandler {
 
         ChessGame.TeamColor enemy = game.getTeamTurn();
         String enemyName = (enemy == ChessGame.TeamColor.WHITE) ? gameData.whiteUsername(): gameData.blackUsername();
-        if(game.isInCheckmate(enemy)) {
-            NotificationMessage inCheckmate = new NotificationMessage(String.format("%s is in checkmate! Game over.", enemyName));
-            for(Session s : existing) {
-                send(s, inCheckmate);
-            }
-        }else if(game.isInCheck(enemy)) {
-            NotificationMessage inCheck = new NotificationMessage(String.format("%s is in check!", enemyName));
+        String statusText = switch (status) { //worked out once by makeMove
+            case CHECKMATE -> "%s is in checkmate! Game over.";
+            case STALEMATE -> "%s is in stalemate! Game over.";
+            case DRAW_BY_REPETITION -> "Draw by threefold repetition! Game over.";
+            case DRAW_BY_FIFTY_MOVES -> "Draw by the fifty-move rule! Game over.";
+            case CHECK -> "%s is in check!";
+            case NORMAL -> null;
+        };
+        if(statusText != null) {
+            NotificationMessage statusNotification = new NotificationMessage(String.format(statusText, enemyName));
             for(Session s : existing) {
-                send(s, inCheck);
+                send(s, statusNotification);
             }
         }
     }
@@ -266,7 +326,7 @@ public class WebsocketHandler {
         GameData gameData = validateGameData(session, authToken, gameID);
         if(gameData == null) { return; }
 
-        IN_GAME_SESSION.getOrDefault(gameID, Set.of()).remove(session);
+        removeSession(gameID, session);
         String username = auth.username();
         String player = username.equals(gameData.whiteUsername())
                 ? "White player" : username.equals(gameData.blackUsername())
@@ -278,12 +338,23 @@ public class WebsocketHandler {
     public void onClose(Session session, int statusCode, String reason) {
         Integer gameID = GAME_SESSIONS.remove(session);
         if(gameID != null) {
-            IN_GAME_SESSION.getOrDefault(gameID, Set.of()).remove(session);
+            post(gameID, () -> removeSession(gameID, session), ex -> { });
         }
         AUTHSESSIONS.remove(session);
         System.out.println("WebSocket close: " + reason);
     }
 
+    //Builds LOAD_GAME from the game's published snapshot, so Gson never walks a game that is being moved;
+    //the game built from it keeps the snapshot's status and repetition keys
+    private LoadMessage loadMessage(GameData gameData) {
+        ChessGame game = gameData.game();
+        if(game == null) {
+            return new LoadMessage(gameData);
+        }
+        return new LoadMessage(new GameData(gameData.gameID(), gameData.whiteUsername(),
+                gameData.blackUsername(), gameData.gameName(), game.getSnapshot().toGame()));
+    }
+
     private void sendToGame(int gameID, ServerMessage message) {
         for(Session s: IN_GAME_SESSION.getOrDefault(gameID, Set.of())) {
             if(s.isOpen()) {
@@ -293,8 +364,13 @@ public class WebsocketHandler {
     }
 
     private void send(Session session, ServerMessage message) {
+        send(session, GSON.toJson(message));
+    }
+
+    //Sends a message already turned into JSON, so a broadcast is serialized once rather than per session
+    private void send(Session session, String json) {
         try {
-            session.getRemote().sendString(GSON.toJson(message));
+            session.getRemote().sendString(json);
         }catch (IOException e) {
             System.err.println("Send error: " + e.getMessage());
         }
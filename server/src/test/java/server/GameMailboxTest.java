@@ -0,0 +1,93 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMailboxTest {
+    @Test
+    void tasksRunOneAtATimeInOrder() throws InterruptedException {
+        GameMailbox mailbox = new GameMailbox();
+        List<Integer> order = new ArrayList<>(); //unsynchronized on purpose, only one task runs at a time
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1000);
+
+        Thread[] posters = new Thread[4];
+        for(int t = 0; t < posters.length; t++) {
+            int poster = t;
+            posters[t] = new Thread(() -> {
+                for(int i = 0; i < 250; i++) {
+                    int value = poster * 1000 + i;
+                    mailbox.post(() -> {
+                        if(running.incrementAndGet() > 1) { overlaps.incrementAndGet(); }
+                        order.add(value);
+                        running.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+            posters[t].start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(0, overlaps.get());
+        assertEquals(1000, order.size());
+        //each poster's tasks keep the order they were posted in
+        int[] last = {-1, -1, -1, -1};
+        for(int value : order) {
+            assertTrue(value % 1000 > last[value / 1000]);
+            last[value / 1000] = value % 1000;
+        }
+    }
+
+    @Test
+    void failingTaskDoesNotStallTheMailbox() throws InterruptedException {
+        GameMailbox mailbox = new GameMailbox();
+        CountDownLatch done = new CountDownLatch(1);
+        mailbox.post(() -> { throw new IllegalStateException("bad command"); });
+        mailbox.post(done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failureIsHandedToTheSender() throws InterruptedException {
+        GameMailbox mailbox = new GameMailbox();
+        List<RuntimeException> failures = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        mailbox.post(() -> { throw new IllegalStateException("bad command"); }, failures::add);
+        mailbox.post(done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, failures.size());
+        assertEquals("bad command", failures.get(0).getMessage());
+    }
+
+    @Test
+    void idleOnlyOnceDrained() throws InterruptedException {
+        CountDownLatch idle = new CountDownLatch(1);
+        GameMailbox mailbox = new GameMailbox(idle::countDown);
+        assertTrue(mailbox.isIdle());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mailbox.post(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertFalse(mailbox.isIdle()); //nothing queued, but a command is still running
+        mailbox.post(() -> { });
+        release.countDown();
+        assertTrue(idle.await(10, TimeUnit.SECONDS));
+        assertTrue(mailbox.isIdle());
+    }
+}
@@ -0,0 +1,215 @@
+package chess;
+
+/**
+ * Precomputed attack masks, built once when the class loads. Knight, king and pawn attacks are
+ * plain per-square tables. Rook and bishop attacks use magic bitboards: the blockers on a
+ * square's rays are multiplied by a magic number whose top bits index that square's slice of a
+ * shared table, so a slider's attacks are one multiply and one lookup. The magics were found
+ * once by random search; any change to the masks or table layout needs new ones.
+ * Squares are ChessBoard.squareIndex values, 0 (a1) to 63 (h8).
+ */
+public final class Attacks {
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    //indexed by [color][square], the squares a pawn of that color on that square attacks
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = {
+            0x0080006310804000L, 0x0040100040002000L, 0x01000C4100102000L, 0x0200080412002040L,
+            0x0480080004000280L, 0x2200214200100804L, 0x1080088011004200L, 0x0E00090400204882L,
+            0x0801002080004108L, 0x100C802000400082L, 0x0041002000C99100L, 0x2002000E00401020L,
+            0x2181001100080004L, 0x4012000408100200L, 0x1042000824218200L, 0x0012800041000080L,
+            0x8041060022008040L, 0x0020018040008022L, 0x0820818010002000L, 0x0048008010000884L,
+            0x0029010008000410L, 0x0214004040020100L, 0x0000840002104881L, 0x2020020000610084L,
+            0x2020208080004000L, 0x4040200040100042L, 0x8448802200420010L, 0x0001100280080180L,
+            0x1008010880040080L, 0x0029000300081C00L, 0x6002080400020110L, 0x0000084200040881L,
+            0x3180400080800020L, 0x0050004000402000L, 0x0060022101001641L, 0x0000801002800800L,
+            0x0000800802800400L, 0x0042000802000410L, 0x2242000442004108L, 0xC5410010410008A2L,
+            0x0A98400080208000L, 0x1010002000404000L, 0x0020008010008020L, 0x1850002009010010L,
+            0x9000050008010010L, 0x1804040002008080L, 0x2800224801040090L, 0x100081C900860024L,
+            0x0011008000204100L, 0x0000200040009080L, 0x1200200010008080L, 0x0000100080080480L,
+            0x4008010008900500L, 0x4001000804000300L, 0x4004300812110400L, 0x0240010040840200L,
+            0x0104122900800241L, 0x8000400011008021L, 0x0002010910208242L, 0x0824900005002109L,
+            0x241200081020D40EL, 0x0022001001048802L, 0x0080011002080084L, 0x1004002401004082L
+    };
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = {
+            0x0082021448048100L, 0x0048103100410802L, 0x0008080120200182L, 0x05020A0A0183A40CL,
+            0x4001104002080000L, 0xD085281840022202L, 0x0044020222225C00L, 0x14850406009C1430L,
+            0x0010A0201C112050L, 0x0101340454140528L, 0x4401880801002800L, 0x0024081600488204L,
+            0x0020108820040000L, 0x0904520202200000L, 0x0002104450041014L, 0x8000448211100200L,
+            0x001000202022109EL, 0x0810008704182380L, 0x0008001080204200L, 0x4618400404010810L,
+            0x0108100501400082L, 0x2140400A01100150L, 0x4542000082012008L, 0x0204210444020808L,
+            0x0602200A10A06202L, 0x0004024544C80800L, 0x40080406A0810212L, 0x0C24080008220040L,
+            0x8001010018104000L, 0x0844620015010100L, 0x0012005002080280L, 0x0018420415010120L,
+            0x00C1107000404440L, 0x0058310800040801L, 0x4102402801100045L, 0x00031108010C0040L,
+            0x0240202020520080L, 0x2880820080141000L, 0x0208025042008800L, 0x0008104843828210L,
+            0x0808084411204420L, 0x41404C1014E00840L, 0x0220140024000800L, 0x0304C4C200901802L,
+            0x0C44081010408408L, 0x20A0420881080200L, 0x000848410C014040L, 0x00100A4081261900L,
+            0x4100440220108000L, 0x0002008414620000L, 0x0806024208110008L, 0x0020001820881080L,
+            0x1028009042022600L, 0x40024008220430C0L, 0x0020021002408060L, 0x522008010A618043L,
+            0x0010840088240220L, 0x0120010449042008L, 0x0220006020845000L, 0x0110001A01148808L,
+            0x600C800020820483L, 0x000022C024340428L, 0x4020312410008A02L, 0x0140040440404100L
+    };
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    //indexed by [from][to], squares strictly between two squares on a shared line, or 0
+    private static final long[][] BETWEEN = new long[64][64];
+
+    static {
+        int[][] knightSteps = {{2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}};
+        int[][] kingSteps = {{1, 1}, {1, 0}, {1, -1}, {0, 1}, {0, -1}, {-1, 1}, {-1, 0}, {-1, -1}};
+        for(int square = 0; square < 64; square++) {
+            KNIGHT[square] = stepAttacks(square, knightSteps);
+            KING[square] = stepAttacks(square, kingSteps);
+            PAWN[ChessGame.TeamColor.WHITE.ordinal()][square] = stepAttacks(square, new int[][]{{1, -1}, {1, 1}});
+            PAWN[ChessGame.TeamColor.BLACK.ordinal()][square] = stepAttacks(square, new int[][]{{-1, -1}, {-1, 1}});
+        }
+
+        ROOK_TABLE = buildSliderTable(ROOK_DIRECTIONS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET);
+        BISHOP_TABLE = buildSliderTable(BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET);
+
+        for(int from = 0; from < 64; from++) {
+            for(int to = 0; to < 64; to++) {
+                long fromBit = 1L << from;
+                long toBit = 1L << to;
+                if((rook(from, 0) & toBit) != 0) {
+                    BETWEEN[from][to] = rook(from, toBit) & rook(to, fromBit);
+                }else if((bishop(from, 0) & toBit) != 0) {
+                    BETWEEN[from][to] = bishop(from, toBit) & bishop(to, fromBit);
+                }
+            }
+        }
+    }
+
+    private Attacks() { }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return squares a pawn of the given color on the square attacks
+     */
+    public static long pawn(ChessGame.TeamColor color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    public static long rook(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSET[square]
+                + (int) (((occupied & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square])];
+    }
+
+    public static long bishop(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSET[square]
+                + (int) (((occupied & BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square])];
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    /**
+     * @return squares strictly between two squares on the same rank, file or diagonal, or 0 if they do not line up
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return attacks of a piece of the given type and color standing on the square
+     */
+    public static long of(ChessPiece.PieceType type, ChessGame.TeamColor color, int square, long occupied) {
+        return switch (type) {
+            case KING -> KING[square];
+            case QUEEN -> queen(square, occupied);
+            case BISHOP -> bishop(square, occupied);
+            case KNIGHT -> KNIGHT[square];
+            case ROOK -> rook(square, occupied);
+            case PAWN -> PAWN[color.ordinal()][square];
+        };
+    }
+
+    private static long stepAttacks(int square, int[][] steps) {
+        long attacks = 0;
+        for(int[] step : steps) {
+            int row = (square >>> 3) + step[0];
+            int col = (square & 7) + step[1];
+            if(row >= 0 && row < 8 && col >= 0 && col < 8) {
+                attacks |= 1L << (row * 8 + col);
+            }
+        }
+        return attacks;
+    }
+
+    //Walks each ray until it leaves the board or hits a blocker (the blocker itself is attacked)
+    private static long slowSliderAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for(int[] direction : directions) {
+            int row = (square >>> 3) + direction[0];
+            int col = (square & 7) + direction[1];
+            while(row >= 0 && row < 8 && col >= 0 && col < 8) {
+                long bit = 1L << (row * 8 + col);
+                attacks |= bit;
+                if((occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    //The squares whose occupancy matters: the rays without their last square on the edge
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0;
+        for(int[] direction : directions) {
+            int row = (square >>> 3) + direction[0];
+            int col = (square & 7) + direction[1];
+            while(row + direction[0] >= 0 && row + direction[0] < 8 && col + direction[1] >= 0 && col + direction[1] < 8) {
+                mask |= 1L << (row * 8 + col);
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] buildSliderTable(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+        int size = 0;
+        for(int square = 0; square < 64; square++) {
+            masks[square] = relevantMask(square, directions);
+            int bits = Long.bitCount(masks[square]);
+            shifts[square] = 64 - bits;
+            offsets[square] = size;
+            size += 1 << bits;
+        }
+
+        //fill each square's slice from every subset of its mask
+        long[] table = new long[size];
+        for(int square = 0; square < 64; square++) {
+            long subset = 0;
+            do {
+                int index = offsets[square] + (int) ((subset * magics[square]) >>> shifts[square]);
+                table[index] = slowSliderAttacks(square, subset, directions);
+                subset = (subset - masks[square]) & masks[square];
+            } while(subset != 0);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,158 @@
+package chess;
+
+/**
+ * Immutable copy of a game's position: the twelve piece bitboards plus the side to move,
+ * castling and en passant state, move counters, status and the keys repetitions are checked
+ * against. ChessGame publishes a new one after every move, so other threads can read a
+ * consistent position while the game moves on.
+ */
+public final class BoardSnapshot {
+    //FEN letters of the piece types, in PieceType order
+    static final String FEN_PIECES = "kqbnrp";
+
+    //indexed by color ordinal * 6 + type ordinal
+    private final long[] pieces = new long[12];
+    private final ChessGame.TeamColor team;
+    //ChessGame's six moved flags, as castlingRights packs them
+    private final int castlingRights;
+    //-1, or the column of the pawn that just double moved (+8 for black)
+    private final int enPassant;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    private final ChessGame.GameStatus status;
+    private final boolean gameOver;
+    private final long positionKey;
+    //the game's repetitionKeys array, which is never written to once published
+    private final long[] repetitionKeys;
+    //written on first use; racing threads compute the same string
+    private String fen;
+
+    BoardSnapshot(ChessGame game, int castlingRights, int enPassant) {
+        ChessBoard board = game.getBoard();
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for(ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                pieces[color.ordinal() * 6 + type.ordinal()] = board.pieceMask(color, type);
+            }
+        }
+        this.team = game.getTeamTurn();
+        this.castlingRights = castlingRights;
+        this.enPassant = enPassant;
+        this.halfmoveClock = game.getHalfmoveClock();
+        this.fullmoveNumber = game.getFullmoveNumber();
+        this.status = game.getStatus();
+        this.gameOver = game.getGameOver();
+        this.positionKey = game.positionKey();
+        this.repetitionKeys = game.repetitionKeys();
+    }
+
+    /**
+     * @return the piece on a square index, or null if it is empty
+     */
+    public ChessPiece getPiece(int square) {
+        long bit = 1L << square;
+        for(int i = 0; i < 12; i++) {
+            if((pieces[i] & bit) != 0) {
+                return ChessPiece.of(i);
+            }
+        }
+        return null;
+    }
+
+    public ChessPiece getPiece(ChessPosition position) {
+        return getPiece(ChessBoard.squareIndex(position.getRow(), position.getColumn()));
+    }
+
+    public long pieceMask(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[color.ordinal() * 6 + type.ordinal()];
+    }
+
+    public long occupiedMask() {
+        long occupied = 0;
+        for(long mask : pieces) {
+            occupied |= mask;
+        }
+        return occupied;
+    }
+
+    public ChessGame.TeamColor getTeamTurn() { return team; }
+
+    public int getHalfmoveClock() { return halfmoveClock; }
+
+    public int getFullmoveNumber() { return fullmoveNumber; }
+
+    public ChessGame.GameStatus getStatus() { return status; }
+
+    public boolean getGameOver() { return gameOver; }
+
+    public long positionKey() { return positionKey; }
+
+    /**
+     * @return the position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        String result = fen;
+        if(result == null) {
+            result = writeFen();
+            fen = result;
+        }
+        return result;
+    }
+
+    /**
+     * Builds a new, independent game in this position, for handing to code that wants a
+     * ChessGame, such as Gson. The game keeps this snapshot's status and the keys of the
+     * positions since the last capture or pawn move, so a repetition draw carries over.
+     *
+     * @return a game the caller owns, publishing this snapshot until it is moved
+     */
+    public ChessGame toGame() {
+        ChessGame game = ChessGame.fromFen(toFen());
+        game.restore(status, gameOver, repetitionKeys, this);
+        return game;
+    }
+
+    private String writeFen() {
+        StringBuilder text = new StringBuilder(90);
+        for(int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for(int col = 1; col <= 8; col++) {
+                ChessPiece piece = getPiece(ChessBoard.squareIndex(row, col));
+                if(piece == null) {
+                    empty++;
+                    continue;
+                }
+                if(empty > 0) {
+                    text.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = FEN_PIECES.charAt(piece.getPieceType().ordinal());
+                text.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE
+                        ? Character.toUpperCase(letter) : letter);
+            }
+            if(empty > 0) {
+                text.append((char) ('0' + empty));
+            }
+            if(row > 1) {
+                text.append('/');
+            }
+        }
+
+        text.append(team == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        int length = text.length();
+        if((castlingRights & (1 | 8)) == 0) { text.append('K'); }
+        if((castlingRights & (1 | 4)) == 0) { text.append('Q'); }
+        if((castlingRights & (2 | 32)) == 0) { text.append('k'); }
+        if((castlingRights & (2 | 16)) == 0) { text.append('q'); }
+        if(text.length() == length) {
+            text.append('-');
+        }
+
+        //the target is the square the double-moved pawn skipped over
+        if(enPassant < 0) {
+            text.append(" -");
+        }else {
+            text.append(' ').append((char) ('a' + (enPassant & 7))).append(enPassant < 8 ? '3' : '6');
+        }
+        return text.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
+    }
+}
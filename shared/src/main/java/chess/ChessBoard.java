@@ -1,7 +1,6 @@
 package chess;
 
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -12,6 +11,26 @@ import java.util.Objects;
 public class ChessBoard {
     private ChessPiece[][] board = new ChessPiece[8][8];
 
+    //Occupancy masks derived from board, bit (row - 1) * 8 + (col - 1) is set for an occupied square
+    private transient long[] pieceMasks = new long[12];
+    private transient long[] colorMasks = new long[2];
+    //King square and compact list of occupied squares per color, listSlot maps a square back to its list entry
+    private transient int[] kingSquares = {-1, -1};
+    private transient int[][] pieceLists = new int[2][64];
+    private transient int[] pieceCounts = new int[2];
+    private transient int[] listSlot = new int[64];
+    //Zobrist key of the pieces on the board, and of the pawns alone
+    private transient long pieceKey;
+    private transient long pawnKey;
+    //PieceSquareTables scores summed over the pieces, and the pieces' game phase weights
+    private transient int midgameScore;
+    private transient int endgameScore;
+    private transient int phase;
+    //Told of every piece indexed or unindexed, or null
+    private transient PieceListener listener;
+    //The grid the masks were built from (Gson replaces board without calling addPiece)
+    private transient ChessPiece[][] indexed = board;
+
     public ChessBoard() { }
 
     /**
@@ -24,8 +43,26 @@ public class ChessBoard {
         int row = position.getRow() - 1;
         int col = position.getColumn() - 1;
         if(row >= 0 && row < 8 && col >= 0 && col < 8) {
-            board[row][col] = piece;
+            addPiece(row * 8 + col, piece);
+        }
+    }
+
+    /**
+     * Adds a chess piece by square index, or clears the square when piece is null
+     *
+     * @param square (row - 1) * 8 + (col - 1), so 0 is a1 and 63 is h8
+     * @param piece  the piece to add
+     */
+    public void addPiece(int square, ChessPiece piece) {
+        sync();
+        ChessPiece old = board[square >>> 3][square & 7];
+        if(old != null) {
+            unindex(square, old);
+        }
+        if(piece != null) {
+            index(square, piece);
         }
+        board[square >>> 3][square & 7] = piece;
     }
 
     /**
@@ -46,6 +83,225 @@ public class ChessBoard {
 
     }
 
+    /**
+     * Gets a chess piece by square index
+     *
+     * @param square (row - 1) * 8 + (col - 1), so 0 is a1 and 63 is h8
+     * @return Either the piece on the square, or null if it is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return board[square >>> 3][square & 7];
+    }
+
+    /**
+     * @return mask of the squares holding the given team's pieces of the given type
+     */
+    public long pieceMask(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        sync();
+        return pieceMasks[maskIndex(color, type)];
+    }
+
+    /**
+     * @return mask of the squares holding any of the given team's pieces
+     */
+    public long colorMask(ChessGame.TeamColor color) {
+        sync();
+        return colorMasks[color.ordinal()];
+    }
+
+    /**
+     * @return mask of every occupied square
+     */
+    public long occupiedMask() {
+        sync();
+        return colorMasks[0] | colorMasks[1];
+    }
+
+    /**
+     * @return Zobrist key of the pieces on the board, without side to move, castling or en passant
+     */
+    public long pieceKey() {
+        sync();
+        return pieceKey;
+    }
+
+    /**
+     * @return Zobrist key of the pawns alone, for caching pawn structure
+     */
+    public long pawnKey() {
+        sync();
+        return pawnKey;
+    }
+
+    /**
+     * Material plus piece-square bonuses for the middlegame, kept up to date as pieces move
+     *
+     * @return centipawns, positive when white is better
+     */
+    public int midgameScore() {
+        sync();
+        return midgameScore;
+    }
+
+    /**
+     * Material plus piece-square bonuses for the endgame, kept up to date as pieces move
+     *
+     * @return centipawns, positive when white is better
+     */
+    public int endgameScore() {
+        sync();
+        return endgameScore;
+    }
+
+    /**
+     * How far from the endgame the position is, from the queens, rooks and minor pieces left
+     *
+     * @return 0 (pawns and kings only) to 24 (every piece still on), scale for blending
+     * midgameScore and endgameScore
+     */
+    public int phase() {
+        sync();
+        return Math.min(phase, PieceSquareTables.MAX_PHASE);
+    }
+
+    /**
+     * Attaches a listener, which is reset and then told of every piece already on the board.
+     * Copies of the board do not inherit it.
+     *
+     * @param listener the listener, or null to detach the current one
+     */
+    public void setPieceListener(PieceListener listener) {
+        this.listener = listener;
+        reindex();
+    }
+
+    /**
+     * @return the attached listener, or null; it is brought up to date with the board first
+     */
+    public PieceListener getPieceListener() {
+        sync();
+        return listener;
+    }
+
+    /**
+     * @return square index of the given team's king, or -1 if it has no king on the board
+     */
+    public int kingSquare(ChessGame.TeamColor color) {
+        sync();
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * @return how many pieces the given team has on the board
+     */
+    public int pieceCount(ChessGame.TeamColor color) {
+        sync();
+        return pieceCounts[color.ordinal()];
+    }
+
+    /**
+     * Copies the square indexes of the given team's pieces, in no particular order
+     *
+     * @param squares array of at least pieceCount(color) entries to fill
+     * @return number of squares written
+     */
+    public int pieceSquares(ChessGame.TeamColor color, int[] squares) {
+        sync();
+        int count = pieceCounts[color.ordinal()];
+        System.arraycopy(pieceLists[color.ordinal()], 0, squares, 0, count);
+        return count;
+    }
+
+    /**
+     * Square index used by the masks, 0 is a1 and 63 is h8
+     */
+    public static int squareIndex(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    private static int maskIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    private void sync() {
+        if(indexed != board) {
+            reindex();
+        }
+    }
+
+    private void index(int square, ChessPiece piece) {
+        int color = piece.getTeamColor().ordinal();
+        long bit = 1L << square;
+        int type = maskIndex(piece.getTeamColor(), piece.getPieceType());
+        pieceMasks[type] |= bit;
+        colorMasks[color] |= bit;
+        pieceKey ^= Zobrist.PIECE_SQUARE[type * 64 + square];
+        midgameScore += PieceSquareTables.MIDGAME_SCORES[type * 64 + square];
+        endgameScore += PieceSquareTables.ENDGAME_SCORES[type * 64 + square];
+        phase += PieceSquareTables.PHASE[piece.getPieceType().ordinal()];
+        if(piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[type * 64 + square];
+        }
+        if(piece.getPieceType() == ChessPiece.PieceType.KING) {
+            kingSquares[color] = square;
+        }
+        if(listener != null) {
+            listener.pieceAdded(type, square);
+        }
+        listSlot[square] = pieceCounts[color];
+        pieceLists[color][pieceCounts[color]++] = square;
+    }
+
+    private void unindex(int square, ChessPiece piece) {
+        int color = piece.getTeamColor().ordinal();
+        long bit = 1L << square;
+        int type = maskIndex(piece.getTeamColor(), piece.getPieceType());
+        pieceMasks[type] &= ~bit;
+        colorMasks[color] &= ~bit;
+        pieceKey ^= Zobrist.PIECE_SQUARE[type * 64 + square];
+        midgameScore -= PieceSquareTables.MIDGAME_SCORES[type * 64 + square];
+        endgameScore -= PieceSquareTables.ENDGAME_SCORES[type * 64 + square];
+        phase -= PieceSquareTables.PHASE[piece.getPieceType().ordinal()];
+        if(piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[type * 64 + square];
+        }
+        if(kingSquares[color] == square) { //fall back to any other king left on the board
+            long kings = pieceMasks[type];
+            kingSquares[color] = (kings == 0) ? -1 : Long.numberOfTrailingZeros(kings);
+        }
+        if(listener != null) {
+            listener.pieceRemoved(type, square);
+        }
+        //move the last entry into the freed slot
+        int last = pieceLists[color][--pieceCounts[color]];
+        pieceLists[color][listSlot[square]] = last;
+        listSlot[last] = listSlot[square];
+    }
+
+    private void reindex() {
+        Arrays.fill(pieceMasks, 0L);
+        Arrays.fill(colorMasks, 0L);
+        Arrays.fill(kingSquares, -1);
+        Arrays.fill(pieceCounts, 0);
+        pieceKey = 0;
+        pawnKey = 0;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        if(listener != null) {
+            listener.reset();
+        }
+        for(int row = 0; row < 8; row++) {
+            for(int col = 0; col < 8; col++) {
+                ChessPiece piece = board[row][col];
+                if(piece != null) {
+                    index(row * 8 + col, piece);
+                }
+            }
+        }
+        indexed = board;
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
@@ -58,30 +314,31 @@ public class ChessBoard {
             }
         }
         //Place black pieces
-        board[0][0] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        board[0][1] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        board[0][2] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        board[0][3] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-        board[0][4] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-        board[0][5] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        board[0][6] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        board[0][7] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        board[0][0] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        board[0][1] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+        board[0][2] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
+        board[0][3] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
+        board[0][4] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+        board[0][5] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
+        board[0][6] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+        board[0][7] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
         for(int i = 0; i < 8; i++) {
-            board[1][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+            board[1][i] = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
         }
 
         //Place white pieces
-        board[7][0] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-        board[7][1] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        board[7][2] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        board[7][3] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-        board[7][4] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-        board[7][5] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        board[7][6] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        board[7][7] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        board[7][0] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        board[7][1] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+        board[7][2] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
+        board[7][3] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
+        board[7][4] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        board[7][5] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
+        board[7][6] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+        board[7][7] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
         for(int i = 0; i < 8; i++) {
-            board[6][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            board[6][i] = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
         }
+        reindex();
     }
 
     @Override
@@ -93,11 +350,14 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        sync();
+        that.sync();
+        return Arrays.equals(pieceMasks, that.pieceMasks);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        sync();
+        return Long.hashCode(pieceKey);
     }
 }
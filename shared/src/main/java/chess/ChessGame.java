@@ -1,6 +1,9 @@
 package chess;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -16,6 +19,11 @@ public class ChessGame {
     private ChessBoard board = new ChessBoard();
 
     private boolean gameOver;
+    private GameStatus status = GameStatus.NORMAL;
+
+    //Columns the king stands on or crosses when castling
+    private static final int[] LEFT_CASTLING_PATH = {5, 4, 3};
+    private static final int[] RIGHT_CASTLING_PATH = {5, 6, 7};
 
     private boolean isWhiteKingMoved = false;
     private boolean isBlackKingMoved = false;
@@ -28,8 +36,67 @@ public class ChessGame {
     private boolean[] doubleMoveWhite = new boolean[8];
     private boolean[] doubleMoveBlack = new boolean[8];
 
+    //Plies since the last capture or pawn move, and the move number black's next move completes
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    //Ring of position keys indexed by ply, long enough to cover the fifty-move window. It is not
+    //serialized; keyHistory() rebuilds it from repetitionKeys after the game is loaded.
+    private static final int KEY_HISTORY_SIZE = 128;
+    private transient long[] keyHistory;
+    //Keys doMove wrote over in keyHistory, by the same ply index, for undoMove to put back. Holds
+    //moves nested up to the ring's length deep, which covers the searcher's ply limit.
+    private transient long[] displacedKeys;
+    //Keys of the positions since the last capture or pawn move, oldest first and ending with the
+    //current one, as of the last makeMove. Replaced whole, never written to, so copies can share it.
+    private long[] repetitionKeys;
+    //Moves made through makeMove as PackedMove ints, and the FEN of the position before the first of them
+    @JsonAdapter(value = MoveHistoryAdapter.class, nullSafe = false)
+    private MoveList moveHistory = new MoveList(16);
+    private String startFen;
+
+    //Reused buffers so move validation does not allocate
+    private transient MoveList scratch = new MoveList();
+    private transient int[] squareScratch = new int[64];
+    //Check and pin masks for the side whose moves are being generated
+    private transient long checkMask;
+    private transient int checkerCount;
+    private transient long pinned;
+    private transient long[] pinRays = new long[64];
+    //Legal moves of positions already seen, looked up by positionKey
+    private transient LegalMoveCache moveCache = LegalMoveCache.shared();
+    //Latest published position, replaced whole so readers never see a move half made
+    private transient volatile BoardSnapshot snapshot;
+
     public ChessGame() {
         board.resetBoard();
+        repetitionKeys = new long[]{zobristKey()};
+    }
+
+    /**
+     * Copies a game, its castling and en passant state, move counters and repetition history
+     * included, so the copy can be played on without touching the original
+     *
+     * @param other the game to copy
+     */
+    public ChessGame(ChessGame other) {
+        team = other.team;
+        board = other.copyBoard(other.board);
+        gameOver = other.gameOver;
+        status = other.status;
+        setCastlingRights(other.castlingRights());
+        setEnPassantState(other.enPassantState());
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        keyHistory = other.keyHistory().clone();
+        displacedKeys = other.displacedKeys.clone();
+        repetitionKeys = other.repetitionKeys;
+        moveHistory = new MoveList(Math.max(other.moveHistory.size(), 16));
+        for(int i = 0; i < other.moveHistory.size(); i++) {
+            moveHistory.add(other.moveHistory.get(i));
+        }
+        startFen = other.startFen;
+        moveCache = other.moveCache;
+        snapshot = other.snapshot;
     }
     /**
      * @return Which team's turn it is
@@ -44,6 +111,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         this.team = team;
+        moveHistory.clear(); //the recorded moves no longer lead here
     }
     /**
      * Enum identifying the 2 possible teams in a chess game
@@ -52,20 +120,32 @@ public class ChessGame {
         WHITE,
         BLACK
     }
+    /**
+     * Where the game stands for the team to move, worked out once by makeMove
+     */
+    public enum GameStatus {
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        DRAW_BY_REPETITION,
+        DRAW_BY_FIFTY_MOVES;
+
+        /**
+         * @return True if no more moves can be played
+         */
+        public boolean endsGame() {
+            return this != NORMAL && this != CHECK;
+        }
+    }
     public ChessBoard copyBoard(ChessBoard copy) {
         ChessBoard newBoard = new ChessBoard();
 
-        for(int i = 1; i <= 8; i++) {
-            for(int j = 1; j <= 8; j++) {
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece piece = board.getPiece(position);
-                if(piece != null) {
-                    ChessPiece copiedPiece = new ChessPiece(piece.getTeamColor(), piece.getPieceType());
-                    newBoard.addPiece(position, copiedPiece);
-                }else {
-                    newBoard.addPiece(position, null);
-                }
-            }
+        //only the occupied squares need copying, the new board starts empty
+        for(long occupied = board.occupiedMask(); occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            ChessPiece piece = board.getPiece(square);
+            newBoard.addPiece(ChessPosition.of(square), ChessPiece.of(piece.getTeamColor(), piece.getPieceType()));
         }
         return newBoard;
     }
@@ -77,50 +157,216 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-       ChessPiece piece = board.getPiece(startPosition);
-
-       //if there is no piece in start position
-       if(piece == null) {
-           return new ArrayList<>();
-       }
-
-       Collection<ChessMove> validMoves = new ArrayList<>();
-       Collection<ChessMove> moves = piece.pieceMoves(board, startPosition);
-       for (ChessMove move : moves) {
-           //create a deep copy of the board
-           ChessBoard temp = copyBoard(board);
-
-           //Check the move on the temporary board
-           if (move.getPromotionPiece() != null) { //capture and move with promotion
-               temp.addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
-           } else { //capture and move without promotion
-               temp.addPiece(move.getEndPosition(), piece);
-           }
-           //move if there is nothing in the position
-           temp.addPiece(startPosition, null);
-
-           //if there is "check"
-           ChessBoard original = this.board;
-           this.setBoard(temp);
-           boolean check = isInCheck(piece.getTeamColor());
-           this.setBoard(original);
-           if(!check) {
-               validMoves.add(move);
-           }
-
-       }
-
-       //Castling move
+        Collection<ChessMove> validMoves = new ArrayList<>();
+        ChessPiece piece = board.getPiece(startPosition);
+        if(piece == null) { //if there is no piece in start position
+            return validMoves;
+        }
+
+        int square = ChessBoard.squareIndex(startPosition.getRow(), startPosition.getColumn());
+        for(int move : cachedMoves(piece.getTeamColor())) {
+            if(PackedMove.from(move) == square) {
+                validMoves.add(PackedMove.toChessMove(move));
+            }
+        }
+        return validMoves;
+    }
+
+    /**
+     * Appends the legal moves of the piece on a square to a list as PackedMove ints,
+     * including castling and en passant, without allocating
+     *
+     * @param square square index of the piece
+     * @param moves  list to append to
+     */
+    public void validMoves(int square, MoveList moves) {
+        ChessPiece piece = board.getPiece(square);
+        if(piece == null) { return; }
+
+        prepareLegalMasks(piece.getTeamColor());
+        addPieceMoves(square, piece, moves);
+    }
+
+    /**
+     * Gets every legal move of a team in one pass, including castling and en passant
+     *
+     * @param teamColor the team to move
+     * @return all of the team's legal moves
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        int[] packed = cachedMoves(teamColor);
+        Collection<ChessMove> moves = new ArrayList<>(packed.length);
+        for(int move : packed) {
+            moves.add(PackedMove.toChessMove(move));
+        }
+        return moves;
+    }
+
+    /**
+     * Appends every legal move of a team to a list as PackedMove ints. The check and pin
+     * masks are worked out once for the position, so only en passant needs a make/unmake test.
+     *
+     * @param teamColor the team to move
+     * @param moves     list to append to
+     */
+    public void legalMoves(TeamColor teamColor, MoveList moves) {
+        prepareLegalMasks(teamColor);
+        //en passant reorders the live piece list while testing, so walk a copy of it
+        int count = board.pieceSquares(teamColor, squareScratch);
+        for(int i = 0; i < count; i++) {
+            addPieceMoves(squareScratch[i], board.getPiece(squareScratch[i]), moves);
+        }
+    }
+
+    /**
+     * Determines if a team has at least one legal move, stopping at the first one found
+     *
+     * @param teamColor the team to move
+     * @return True if the team can move
+     */
+    public boolean hasAnyLegalMove(TeamColor teamColor) {
+        prepareLegalMasks(teamColor);
+        //the king first, it is the only piece that can move out of a double check
+        int king = board.kingSquare(teamColor);
+        if(king >= 0) {
+            scratch.clear();
+            addPieceMoves(king, board.getPiece(king), scratch);
+            if(!scratch.isEmpty()) { return true; }
+            if(checkerCount > 1) { return false; }
+        }
+        int count = board.pieceSquares(teamColor, squareScratch);
+        for(int i = 0; i < count; i++) {
+            if(squareScratch[i] == king) { continue; }
+            scratch.clear();
+            addPieceMoves(squareScratch[i], board.getPiece(squareScratch[i]), scratch);
+            if(!scratch.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addPieceMoves(int square, ChessPiece piece, MoveList moves) {
+        int king = board.kingSquare(piece.getTeamColor());
+        if(piece.getPieceType() == ChessPiece.PieceType.KING && square != king) {
+            //a second king of the same color: only make/unmake testing gets this right
+            int start = moves.size();
+            piece.pieceMoves(board, square, moves);
+            int kept = start;
+            for(int i = start; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if(isLegal(move, piece.getTeamColor())) {
+                    moves.set(kept++, move);
+                }
+            }
+            moves.truncate(kept);
+            return;
+        }
+        addLegalMoves(square, piece, moves);
+    }
+
+    //Works out which squares resolve a check and which pieces are pinned to the king, for one side
+    private void prepareLegalMasks(TeamColor color) {
+        TeamColor enemyColor = (color == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        int king = board.kingSquare(color);
+        pinned = 0;
+        if(king < 0) { //nothing to protect, every pseudo-legal move is legal
+            checkMask = ~0L;
+            checkerCount = 0;
+            return;
+        }
+
+        long checkers = attackersTo(king, enemyColor, board.occupiedMask());
+        checkerCount = Long.bitCount(checkers);
+        if(checkerCount == 0) {
+            checkMask = ~0L;
+        }else if(checkerCount == 1) { //capture the checker or step in between
+            checkMask = checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+        }else { //double check, only the king can move
+            checkMask = 0;
+        }
+
+        //enemy sliders that would see the king through our pieces
+        long enemies = board.colorMask(enemyColor);
+        long queens = board.pieceMask(enemyColor, ChessPiece.PieceType.QUEEN);
+        long snipers = (Attacks.rook(king, enemies) & (board.pieceMask(enemyColor, ChessPiece.PieceType.ROOK) | queens))
+                | (Attacks.bishop(king, enemies) & (board.pieceMask(enemyColor, ChessPiece.PieceType.BISHOP) | queens));
+        long occupied = board.occupiedMask();
+        for(; snipers != 0; snipers &= snipers - 1) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            long blockers = Attacks.between(king, sniper) & occupied;
+            if(Long.bitCount(blockers) == 1) { //the only piece in the way is ours, so it is pinned to that line
+                int square = Long.numberOfTrailingZeros(blockers);
+                pinned |= blockers;
+                pinRays[square] = Attacks.between(king, sniper) | (1L << sniper);
+            }
+        }
+    }
+
+    //Legal moves of one piece, using the masks from prepareLegalMasks
+    private void addLegalMoves(int square, ChessPiece piece, MoveList moves) {
+        TeamColor color = piece.getTeamColor();
+        long own = board.colorMask(color);
+        long occupied = board.occupiedMask();
+
         if(piece.getPieceType() == ChessPiece.PieceType.KING) {
-            validMoves.addAll(castlingMove(startPosition));
+            //step to any square the enemy does not attack once the king has left its square
+            TeamColor enemyColor = (color == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+            long withoutKing = occupied & ~(1L << square);
+            for(long targets = Attacks.king(square) & ~own; targets != 0; targets &= targets - 1) {
+                int target = Long.numberOfTrailingZeros(targets);
+                if(attackersTo(target, enemyColor, withoutKing) == 0) {
+                    int flag = ((occupied >>> target) & 1) != 0 ? PackedMove.CAPTURE : PackedMove.QUIET;
+                    moves.add(PackedMove.encode(square, target, flag));
+                }
+            }
+            if(checkerCount == 0) { //Castling move
+                addCastlingMoves(square, color, moves);
+            }
+            return;
         }
-        //En Passant move
+        if(checkerCount > 1) { return; }
+
+        long allowed = checkMask;
+        if(((pinned >>> square) & 1) != 0) {
+            allowed &= pinRays[square];
+        }
+
+        int start = moves.size();
+        piece.pieceMoves(board, square, moves);
+        int kept = start;
+        for(int i = start; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if(((allowed >>> PackedMove.to(move)) & 1) != 0) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+
+        //En Passant move, tested on the board since it removes two pieces from a line at once
         if(piece.getPieceType() == ChessPiece.PieceType.PAWN && validEnPassant) {
-            validMoves.addAll(enPassantMove(startPosition));
+            addEnPassantMoves(square, color, moves);
         }
+    }
+
+    private long attackersTo(int square, TeamColor byColor, long occupied) {
+        long queens = board.pieceMask(byColor, ChessPiece.PieceType.QUEEN);
+        //a piece on the square attacks exactly the squares the same kind of enemy piece could attack it from
+        TeamColor target = (byColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        return (Attacks.knight(square) & board.pieceMask(byColor, ChessPiece.PieceType.KNIGHT))
+                | (Attacks.king(square) & board.pieceMask(byColor, ChessPiece.PieceType.KING))
+                | (Attacks.pawn(target, square) & board.pieceMask(byColor, ChessPiece.PieceType.PAWN))
+                | (Attacks.bishop(square, occupied) & (board.pieceMask(byColor, ChessPiece.PieceType.BISHOP) | queens))
+                | (Attacks.rook(square, occupied) & (board.pieceMask(byColor, ChessPiece.PieceType.ROOK) | queens));
+    }
 
-       return validMoves;
+    private boolean isLegal(int move, TeamColor color) {
+        int undo = doMove(move);
+        boolean check = isInCheck(color);
+        undoMove(move, undo);
+        return !check;
     }
+
     /**
      * Makes a move in a chess game
      *
@@ -129,51 +375,220 @@ public class ChessGame {
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
         ChessPosition startPosition = move.getStartPosition();
-        ChessPosition endPosition = move.getEndPosition();
         ChessPiece piece = board.getPiece(startPosition);
 
         if(piece == null || piece.getTeamColor() != team) { //check if piece is in current team
             throw new InvalidMoveException("It's not your turn");
         }
 
-        Collection<ChessMove> validMoves = validMoves(startPosition);
-        boolean allowed = validMoves.stream().anyMatch(valid ->
-                valid.getStartPosition().equals(move.getStartPosition())
-                && valid.getEndPosition().equals(move.getEndPosition()));
-        if(!allowed) { //check if making move is valid
+        //check if making move is valid (including the promotion piece)
+        int packed;
+        try {
+            packed = PackedMove.of(move, board);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidMoveException(ex.getMessage());
+        }
+        if(!contains(cachedMoves(team), packed)) {
             throw new InvalidMoveException("Not valid move");
         }
 
-        if(piece.getPieceType() == ChessPiece.PieceType.PAWN && //En Passant capture
-                board.getPiece(endPosition) == null &&
-                startPosition.getColumn() != endPosition.getColumn()) {
-            int captureRow = (piece.getTeamColor() == TeamColor.WHITE) ? endPosition.getRow() - 1 : endPosition.getRow() + 1;
+        if(moveHistory.isEmpty()) {
+            startFen = toFen();
+        }
+        doMove(packed);
+        recordKey();
+        moveHistory.add(packed);
+        updateStatus();
+        snapshot = newSnapshot();
+    }
+
+    /**
+     * Moves made through makeMove since the game began, or since the board or turn was last
+     * set, in order. Games loaded from FEN start their history at that position.
+     *
+     * @return the moves, starting from the getHistoryStartFen position
+     */
+    public List<ChessMove> getMoveHistory() {
+        List<ChessMove> moves = new ArrayList<>(moveHistory.size());
+        for(int i = 0; i < moveHistory.size(); i++) {
+            moves.add(PackedMove.toChessMove(moveHistory.get(i)));
+        }
+        return moves;
+    }
+
+    /**
+     * @return FEN of the position the move history starts from
+     */
+    public String getHistoryStartFen() {
+        return moveHistory.isEmpty() ? toFen() : startFen;
+    }
+
+    //Stores the status for the team now to move and ends the game on a mate or a draw
+    private void updateStatus() {
+        status = computeStatus();
+        if(status.endsGame()) {
+            gameOver = true;
+        }
+    }
 
-            ChessPosition capturePosition = new ChessPosition(captureRow, endPosition.getColumn());
-            board.addPiece(capturePosition, null); //remove the captured pawn
+    //The opponent's moves are cached here, so validating their next move is a lookup
+    private GameStatus computeStatus() {
+        boolean inCheck = isInCheck(team);
+        if(cachedMoves(team).length == 0) { //mate takes precedence over the draw rules
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if(isFiftyMoveDraw()) {
+            return GameStatus.DRAW_BY_FIFTY_MOVES;
         }
+        if(isThreefoldRepetition()) {
+            return GameStatus.DRAW_BY_REPETITION;
+        }
+        return inCheck ? GameStatus.CHECK : GameStatus.NORMAL;
+    }
 
-        boolean isPawn = piece.getPieceType() == ChessPiece.PieceType.PAWN;
-        boolean lastReached = (piece.getTeamColor() == TeamColor.WHITE && endPosition.getRow() == 8)
-                || (piece.getTeamColor() == TeamColor.BLACK && endPosition.getRow() == 1);
-        if(isPawn && lastReached) { //move with promotion
-            board.addPiece(endPosition, new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
+    /**
+     * Counts earlier occurrences of the current position with the same side to move, looking
+     * back only over the plies since the last capture or pawn move, as no position before one can recur
+     *
+     * @return how many times the position was seen before
+     */
+    public int repetitionCount() {
+        long key = zobristKey();
+        int ply = ply();
+        int limit = Math.min(halfmoveClock, KEY_HISTORY_SIZE - 1);
+        long[] keyHistory = keyHistory();
+        int count = 0;
+        //the same side is to move every second ply, and no position recurs in fewer than four
+        for(int back = 4; back <= limit; back += 2) {
+            if(keyHistory[(ply - back) & (KEY_HISTORY_SIZE - 1)] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return True if the current position has occurred three times
+     */
+    public boolean isThreefoldRepetition() {
+        return repetitionCount() >= 2;
+    }
+
+    /**
+     * @return True if fifty moves by each side have passed without a capture or pawn move
+     */
+    public boolean isFiftyMoveDraw() {
+        return halfmoveClock >= 100;
+    }
+
+    //Ring of recent position keys, rebuilt from repetitionKeys when the game was just loaded
+    private long[] keyHistory() {
+        long[] ring = keyHistory;
+        if(ring == null) {
+            ring = new long[KEY_HISTORY_SIZE];
+            long[] keys = repetitionKeys;
+            long key = zobristKey();
+            if(keys == null || keys[keys.length - 1] != key) { //saved before the keys were, or the board was set
+                keys = new long[]{key};
+            }
+            int ply = ply();
+            for(int i = 0; i < keys.length; i++) {
+                ring[(ply - (keys.length - 1 - i)) & (KEY_HISTORY_SIZE - 1)] = keys[i];
+            }
+            keyHistory = ring;
+            displacedKeys = new long[KEY_HISTORY_SIZE];
+        }
+        return ring;
+    }
+
+    //Appends the current key to repetitionKeys, starting over after an irreversible move
+    //or when they do not end with the position the move was made from
+    private void recordKey() {
+        long key = zobristKey();
+        long[] keys = repetitionKeys;
+        if(halfmoveClock == 0 || keys == null
+                || keys[keys.length - 1] != keyHistory()[(ply() - 1) & (KEY_HISTORY_SIZE - 1)]) {
+            repetitionKeys = new long[]{key};
+            return;
+        }
+        int keep = Math.min(keys.length, KEY_HISTORY_SIZE - 1);
+        long[] next = Arrays.copyOfRange(keys, keys.length - keep, keys.length + 1);
+        next[keep] = key;
+        repetitionKeys = next;
+    }
+
+    //Plies played since the start of the game, from the move counters
+    private int ply() {
+        return (fullmoveNumber - 1) * 2 + team.ordinal();
+    }
+
+    private static boolean contains(int[] moves, int move) {
+        for(int candidate : moves) {
+            if(candidate == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plays a move without checking that it is legal, including the rook jump of castling,
+     * the pawn removed by en passant, promotion, the castling/en passant flags and the turn.
+     * The returned record restores all of it through undoMove.
+     *
+     * @param move pseudo-legal move to perform
+     * @return record used to take the move back
+     */
+    public MoveUndo doMove(ChessMove move) {
+        int packed = PackedMove.of(move, board);
+        return new MoveUndo(move, packed, doMove(packed));
+    }
+
+    /**
+     * Takes back a move made by doMove. Moves must be undone in the reverse order they were made.
+     *
+     * @param undo the record returned by doMove
+     */
+    public void undoMove(MoveUndo undo) {
+        undoMove(undo.packedMove, undo.state);
+    }
+
+    /**
+     * Allocation-free form of doMove for PackedMove ints
+     *
+     * @param move pseudo-legal packed move to perform
+     * @return packed state to hand back to undoMove(move, state)
+     */
+    public int doMove(int move) {
+        long[] keyHistory = keyHistory(); //built from the position before the move
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flag = PackedMove.flag(move);
+        ChessPiece piece = board.getPiece(from);
+
+        //en passant takes the pawn beside the start square, not on the end square
+        int captureSquare = (flag == PackedMove.EN_PASSANT) ? (from & ~7) | (to & 7) : to;
+        ChessPiece captured = board.getPiece(captureSquare);
+        int state = (captured == null ? 15 : pieceIndex(captured))
+                | castlingRights() << 4 | (enPassantState() + 1) << 10 | team.ordinal() << 15
+                | Math.min(halfmoveClock, 0xFFFF) << 16;
+
+        board.addPiece(captureSquare, null); //remove the captured piece
+        board.addPiece(from, null);
+        if(PackedMove.isPromotion(move)) { //move with promotion
+            board.addPiece(to, ChessPiece.of(piece.getTeamColor(), PackedMove.promotionType(move)));
         }else { //move without promotion
-            board.addPiece(endPosition, piece);
+            board.addPiece(to, piece);
         }
-        board.addPiece(startPosition, null);
 
         //castling move
-        if(piece.getPieceType() == ChessPiece.PieceType.KING) { //king castling move
-            //left side
-            if(startPosition.getColumn() == 5 && endPosition.getColumn() == 3) {
-                board.addPiece(new ChessPosition(startPosition.getRow(), 4), board.getPiece(new ChessPosition(startPosition.getRow(), 1)));
-                board.addPiece(new ChessPosition(startPosition.getRow(), 1), null);
-            }else if(move.getStartPosition().getColumn() == 5 && move.getEndPosition().getColumn() == 7) { //right side
-                board.addPiece(new ChessPosition(startPosition.getRow(), 6), board.getPiece(new ChessPosition(startPosition.getRow(), 8)));
-                board.addPiece(new ChessPosition(startPosition.getRow(), 8), null);
-            }
-            //update king moved
+        int row = (from >>> 3) + 1;
+        if(flag == PackedMove.QUEEN_CASTLE) { //left side
+            moveRook(row, 1, 4);
+        }else if(flag == PackedMove.KING_CASTLE) { //right side
+            moveRook(row, 8, 6);
+        }
+        if(piece.getPieceType() == ChessPiece.PieceType.KING) { //update king moved
             if(piece.getTeamColor() == TeamColor.WHITE) {
                 isWhiteKingMoved = true;
             }else {
@@ -181,66 +596,145 @@ public class ChessGame {
             }
         }
 
-        if(piece.getPieceType() == ChessPiece.PieceType.ROOK) { //rook castling move
-            if(piece.getTeamColor() == TeamColor.WHITE) {
-                if(startPosition.getRow() == 1 && startPosition.getColumn() == 1) {
-                    isWhiteRookLeftMoved = true;
-                }
-                if(startPosition.getRow() == 1 && startPosition.getColumn() == 8) {
-                    isWhiteRookRightMoved = true;
-                }
-            }else {
-                if(startPosition.getRow() == 8 && startPosition.getColumn() == 1) {
-                    isBlackRookLeftMoved = true;
-                }
-                if(startPosition.getRow() == 8 && startPosition.getColumn() == 8) {
-                    isBlackRookRightMoved = true;
-                }
-            }
+        //a rook leaving or being captured on its corner loses its castling
+        if(piece.getPieceType() == ChessPiece.PieceType.ROOK) {
+            markRookMoved(from);
+        }
+        if(captured != null && captured.getPieceType() == ChessPiece.PieceType.ROOK) {
+            markRookMoved(captureSquare);
         }
 
-        for(int i = 0; i < 8; i++) { //Reset all en passant relating variables
-            doubleMoveWhite[i] = false;
-            doubleMoveBlack[i] = false;
+        setEnPassantState(-1); //Reset all en passant relating variables
+        if(flag == PackedMove.DOUBLE_PAWN_PUSH) { //En Passant move by pawn double moves
+            int col = from & 7;
+            setEnPassantState(piece.getTeamColor() == TeamColor.WHITE ? col : col + 8);
         }
-        validEnPassant = false;
 
-        if(piece.getPieceType() == ChessPiece.PieceType.PAWN) {  //En Passant move by pawn double moves
-            int col = startPosition.getColumn() -1;
-            boolean isDoubleMove = (piece.getTeamColor() == TeamColor.WHITE &&
-                    startPosition.getRow() == 2 && endPosition.getRow() == 4) ||
-                    (piece.getTeamColor() == TeamColor.BLACK && startPosition.getRow() == 7 &&
-                            endPosition.getRow() == 5);
+        if(captured != null || piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            halfmoveClock = 0;
+        }else {
+            halfmoveClock++;
+        }
+        if(team == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        team = (team == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE; //Switch the team turn
+        int slot = ply() & (KEY_HISTORY_SIZE - 1);
+        displacedKeys[slot] = keyHistory[slot];
+        keyHistory[slot] = zobristKey();
+        return state;
+    }
 
-            if(isDoubleMove) {
-                if (piece.getTeamColor() == TeamColor.WHITE) {
-                    doubleMoveWhite[col] = true;
-                } else {
-                    doubleMoveBlack[col] = true;
-                }
-                validEnPassant = true;
-            }
+    /**
+     * Takes back a packed move made by doMove(int)
+     *
+     * @param move  the packed move that was played
+     * @param state the value doMove returned for it
+     */
+    public void undoMove(int move, int state) {
+        int slot = ply() & (KEY_HISTORY_SIZE - 1);
+        keyHistory()[slot] = displacedKeys[slot];
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flag = PackedMove.flag(move);
+
+        ChessPiece moved = board.getPiece(to);
+        if(PackedMove.isPromotion(move)) {
+            moved = ChessPiece.of(moved.getTeamColor(), ChessPiece.PieceType.PAWN);
         }
-        if(team == TeamColor.WHITE) { //Switch the team turn
-            team = TeamColor.BLACK;
-        }else {
-            team = TeamColor.WHITE;
+        board.addPiece(to, null);
+        int captureSquare = (flag == PackedMove.EN_PASSANT) ? (from & ~7) | (to & 7) : to;
+        board.addPiece(captureSquare, capturedPiece(state));
+        board.addPiece(from, moved);
+
+        int row = (from >>> 3) + 1;
+        if(flag == PackedMove.QUEEN_CASTLE) {
+            moveRook(row, 4, 1);
+        }else if(flag == PackedMove.KING_CASTLE) {
+            moveRook(row, 6, 8);
         }
+
+        setCastlingRights((state >>> 4) & 63);
+        setEnPassantState(((state >>> 10) & 31) - 1);
+        team = ((state >>> 15) & 1) == 0 ? TeamColor.WHITE : TeamColor.BLACK;
+        halfmoveClock = state >>> 16;
+        if(team == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
+    }
+
+    static ChessPiece capturedPiece(int state) {
+        int index = state & 15;
+        return index == 15 ? null : ChessPiece.of(index);
     }
 
-    private Collection<ChessMove> castlingMove(ChessPosition startPosition) {
-        List<ChessMove> castlingMoves = new ArrayList<>();
-        ChessPiece kingPiece = board.getPiece(startPosition);
+    private static int pieceIndex(ChessPiece piece) {
+        return piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal();
+    }
 
-        //if there is no king in the start position
-        if(kingPiece == null || kingPiece.getPieceType() != ChessPiece.PieceType.KING) {
-            return castlingMoves;
+    private void moveRook(int row, int fromCol, int toCol) {
+        int from = ChessBoard.squareIndex(row, fromCol);
+        board.addPiece(ChessBoard.squareIndex(row, toCol), board.getPiece(from));
+        board.addPiece(from, null);
+    }
+
+    private void markRookMoved(int square) {
+        int row = (square >>> 3) + 1;
+        int col = (square & 7) + 1;
+        if(row == 1 && col == 1) {
+            isWhiteRookLeftMoved = true;
+        }else if(row == 1 && col == 8) {
+            isWhiteRookRightMoved = true;
+        }else if(row == 8 && col == 1) {
+            isBlackRookLeftMoved = true;
+        }else if(row == 8 && col == 8) {
+            isBlackRookRightMoved = true;
         }
+    }
 
+    //The six castling flags packed into bits, in field order
+    private int castlingRights() {
+        return (isWhiteKingMoved ? 1 : 0) | (isBlackKingMoved ? 2 : 0)
+                | (isWhiteRookLeftMoved ? 4 : 0) | (isWhiteRookRightMoved ? 8 : 0)
+                | (isBlackRookLeftMoved ? 16 : 0) | (isBlackRookRightMoved ? 32 : 0);
+    }
+
+    private void setCastlingRights(int bits) {
+        isWhiteKingMoved = (bits & 1) != 0;
+        isBlackKingMoved = (bits & 2) != 0;
+        isWhiteRookLeftMoved = (bits & 4) != 0;
+        isWhiteRookRightMoved = (bits & 8) != 0;
+        isBlackRookLeftMoved = (bits & 16) != 0;
+        isBlackRookRightMoved = (bits & 32) != 0;
+    }
+
+    //-1 when no pawn just double moved, otherwise its column index (+8 for black)
+    private int enPassantState() {
+        if(!validEnPassant) { return -1; }
+        for(int i = 0; i < 8; i++) {
+            if(doubleMoveWhite[i]) { return i; }
+            if(doubleMoveBlack[i]) { return i + 8; }
+        }
+        return -1;
+    }
+
+    private void setEnPassantState(int state) {
+        for(int i = 0; i < 8; i++) {
+            doubleMoveWhite[i] = false;
+            doubleMoveBlack[i] = false;
+        }
+        validEnPassant = state >= 0;
+        if(state >= 8) {
+            doubleMoveBlack[state - 8] = true;
+        }else if(state >= 0) {
+            doubleMoveWhite[state] = true;
+        }
+    }
+
+    private void addCastlingMoves(int square, TeamColor color, MoveList moves) {
         //Castling set up
-        TeamColor color = kingPiece.getTeamColor();
-        int row = startPosition.getRow();
-        int col = startPosition.getColumn();
+        int row = (square >>> 3) + 1;
+        int col = (square & 7) + 1;
 
         boolean isKingMoved = (color == TeamColor.WHITE) ? isWhiteKingMoved : isBlackKingMoved;
         boolean leftRookMoved = (color == TeamColor.WHITE) ? isWhiteRookLeftMoved : isBlackRookLeftMoved;
@@ -248,150 +742,68 @@ public class ChessGame {
 
         //check if king has moved or is in check
         if(isKingMoved || col != 5 || isInCheck(color)) {
-            return castlingMoves;
+            return;
         }
 
-        //set up for checking clear path for left side
-        boolean isLeftPathClear = true;
-        int[] colsForLeft = {4,3,2};
-        for(int c : colsForLeft) {
-            if(board.getPiece(new ChessPosition(row, c)) != null) {
-                isLeftPathClear = false;
+        //check left Rook, with a clear path for left side
+        boolean isLeftPathClear = isEmpty(row, 4) && isEmpty(row, 3) && isEmpty(row, 2);
+        if(!leftRookMoved && isLeftPathClear && isOwnRook(row, 1, color)) {
+            if(isCastlingPathGood(LEFT_CASTLING_PATH, row, color)) {
+                moves.add(PackedMove.encode(square, ChessBoard.squareIndex(row, 3), PackedMove.QUEEN_CASTLE));
             }
         }
 
-        //check left Rook
-        if(!leftRookMoved && isLeftPathClear) {
-            int[] possibleCol = {5,4,3};
-            if(isCastlingPathGood(possibleCol, row, startPosition, color)) {
-                castlingMoves.add(new ChessMove(startPosition, new ChessPosition(row, 3), null));
+        //check right Rook, with a clear path for right side
+        boolean isRightPathClear = isEmpty(row, 6) && isEmpty(row, 7);
+        if(!rightRookMoved && isRightPathClear && isOwnRook(row, 8, color)) {
+            if(isCastlingPathGood(RIGHT_CASTLING_PATH, row, color)) {
+                moves.add(PackedMove.encode(square, ChessBoard.squareIndex(row, 7), PackedMove.KING_CASTLE));
             }
         }
+    }
 
-        //set up for checking clear path for left side
-        boolean isRightPathClear = true;
-        int[] colsForRight = {6,7};
-        for(int c : colsForRight) {
-            if(board.getPiece(new ChessPosition(row, c)) != null) {
-                isRightPathClear = false;
-            }
-        }
+    private boolean isEmpty(int row, int col) {
+        return board.getPiece(ChessBoard.squareIndex(row, col)) == null;
+    }
 
-        //check right Rook
-        if(!rightRookMoved && isRightPathClear) {
-            int[] possibleCol = {5,6,7};
-            if(isCastlingPathGood(possibleCol, row, startPosition, color)) {
-                castlingMoves.add(new ChessMove(startPosition, new ChessPosition(row, 7), null));
-            }
-        }
-        return castlingMoves;
+    private boolean isOwnRook(int row, int col, TeamColor color) {
+        ChessPiece rook = board.getPiece(ChessBoard.squareIndex(row, col));
+        return rook != null && rook.getPieceType() == ChessPiece.PieceType.ROOK && rook.getTeamColor() == color;
     }
 
-    private boolean isCastlingPathGood(int[] cols, int row, ChessPosition startPosition, TeamColor color) {
+    private boolean isCastlingPathGood(int[] cols, int row, TeamColor color) {
+        TeamColor enemyColor = (color == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
         for(int c : cols) {
-            ChessBoard temp = copyBoard(board);
-            temp.addPiece(new ChessPosition(row, c), new ChessPiece(color, ChessPiece.PieceType.KING));
-            temp.addPiece(startPosition, null);
-
-            ChessBoard original = board;
-            setBoard(temp);
-            if(isInCheck(color)) {
-                setBoard(original);
+            //the king may not start on, pass through or land on an attacked square
+            if(isSquareAttacked(ChessBoard.squareIndex(row, c), enemyColor)) {
                 return false;
             }
-            setBoard(original);
         }
         return true;
     }
 
-    private Collection<ChessMove> enPassantMove(ChessPosition startPosition) {
-        List<ChessMove> enPassantMoves = new ArrayList<>();
-        ChessPiece pawnPiece = board.getPiece(startPosition);
+    private void addEnPassantMoves(int square, TeamColor color, MoveList moves) {
+        int state = enPassantState();
+        if(state < 0) { return; }
 
-        //if
-        if(pawnPiece == null || pawnPiece.getPieceType() != ChessPiece.PieceType.PAWN) {
-            return enPassantMoves;
-        }
-
-        int row = startPosition.getRow();
-        int col = startPosition.getColumn();
-        TeamColor color = pawnPiece.getTeamColor();
-
-        //white pawn case
-        if(color == TeamColor.WHITE && row == 5) {
-            //check left
-            if(col > 1 && doubleMoveBlack[col - 2]) {
-                ChessPosition leftPosition = new ChessPosition(row, col-1);
-                ChessPiece leftPiece = board.getPiece(leftPosition);
-                if(leftPiece != null && leftPiece.getPieceType() == ChessPiece.PieceType.PAWN && leftPiece.getTeamColor() == TeamColor.BLACK) {
-                    ChessPosition movePosition = new ChessPosition(row+1, col-1);
-                    ChessMove move = new ChessMove(startPosition, movePosition, null);
+        //the enemy pawn that just double moved, and the row our pawn must stand on to take it
+        TeamColor enemyColor = (state >= 8) ? TeamColor.BLACK : TeamColor.WHITE;
+        int enemyCol = state & 7;
+        int row = square >>> 3;
+        int col = square & 7;
+        int captureRow = (color == TeamColor.WHITE) ? 4 : 3;
+        if(enemyColor == color || row != captureRow || Math.abs(col - enemyCol) != 1) { return; }
 
-                    if(isValidEnPassant(startPosition, movePosition, leftPosition, leftPiece)) {
-                        enPassantMoves.add(move);
-                    }
-                }
-            }
-            //check right
-            if(col < 8 && doubleMoveBlack[col]) {
-                ChessPosition rightPosition = new ChessPosition(row, col+1);
-                ChessPiece rightPiece = board.getPiece(rightPosition);
-                if(rightPiece != null && rightPiece.getPieceType() == ChessPiece.PieceType.PAWN && rightPiece.getTeamColor() == TeamColor.BLACK) {
-                    ChessPosition movePosition = new ChessPosition(row+1, col+1);
-                    ChessMove move = new ChessMove(startPosition, movePosition, null);
-
-                    if(isValidEnPassant(startPosition, movePosition, rightPosition, rightPiece)) {
-                        enPassantMoves.add(move);
-                    }
-                }
+        ChessPiece enemy = board.getPiece(row * 8 + enemyCol);
+        if(enemy != null && enemy.getPieceType() == ChessPiece.PieceType.PAWN && enemy.getTeamColor() == enemyColor) {
+            int next = (color == TeamColor.WHITE) ? 1 : -1;
+            int move = PackedMove.encode(square, (row + next) * 8 + enemyCol, PackedMove.EN_PASSANT);
+            if(isLegal(move, color)) {
+                moves.add(move);
             }
         }
-
-        //black pawn case
-        if(color == TeamColor.BLACK && row == 4) {
-            //check left
-            if(col > 1 && doubleMoveWhite[col - 2]) {
-                ChessPosition leftPosition = new ChessPosition(row, col-1);
-                ChessPiece leftPiece = board.getPiece(leftPosition);
-                if(leftPiece != null && leftPiece.getPieceType() == ChessPiece.PieceType.PAWN && leftPiece.getTeamColor() == TeamColor.WHITE) {
-                    ChessPosition movePosition = new ChessPosition(row-1, col-1);
-                    ChessMove move = new ChessMove(startPosition, movePosition, null);
-
-                    if(isValidEnPassant(startPosition, movePosition, leftPosition, leftPiece)) {
-                        enPassantMoves.add(move);
-                    }
-                }
-            }
-            //check right
-            if(col < 8 && doubleMoveWhite[col]) {
-                ChessPosition rightPosition = new ChessPosition(row, col+1);
-                ChessPiece rightPiece = board.getPiece(rightPosition);
-                if(rightPiece != null && rightPiece.getPieceType() == ChessPiece.PieceType.PAWN && rightPiece.getTeamColor() == TeamColor.WHITE) {
-                    ChessPosition movePosition = new ChessPosition(row-1, col+1);
-                    ChessMove move = new ChessMove(startPosition, movePosition, null);
-
-                    if(isValidEnPassant(startPosition, movePosition, rightPosition, rightPiece)) {
-                        enPassantMoves.add(move);
-                    }
-                }
-            }
-        }
-        return enPassantMoves;
     }
 
-    private boolean isValidEnPassant(ChessPosition startPosition, ChessPosition movePosition, ChessPosition captured, ChessPiece pawnPiece) {
-        ChessBoard temp = copyBoard(board);
-        temp.addPiece(movePosition, pawnPiece);
-        temp.addPiece(startPosition, null);
-        temp.addPiece(captured, null); //capture the black pawn
-
-        ChessBoard original = board;
-        setBoard(temp);
-        boolean valid = !isInCheck(pawnPiece.getTeamColor());
-        setBoard(original);
-
-        return valid;
-    }
     /**
      * Determines if the given team is in check
      *
@@ -399,37 +811,29 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessBoard board = getBoard();
-        ChessPosition kingPos = null;
-        //find the King position
-        for(int row = 1; row <= 8; row++) {
-            for(int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row,col);
-                ChessPiece piece = board.getPiece(position);
-                if(piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor) {
-                    kingPos = position;
-                    break;
-                }
-            }
-        }
+        int kingSquare = board.kingSquare(teamColor);
         //if King is not found
-        if(kingPos == null) { return false; }
-        //find enemy pieces
-        for(int row = 1; row <= 8; row++) {
-            for(int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece enemy = board.getPiece(position);
-
-                if(enemy == null || enemy.getTeamColor() == board.getPiece(kingPos).getTeamColor()) { continue; }
-
-                Collection<ChessMove> moves = board.getPiece(position).pieceMoves(board, position);
-                for(ChessMove move : moves) {
-                    if(kingPos.equals(move.getEndPosition())) { return true; }
-                }
-            }
-        }
-        return false;
+        if(kingSquare < 0) { return false; }
+        TeamColor enemyColor = (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        return isSquareAttacked(kingSquare, enemyColor);
     }
+
+    /**
+     * Determines if any piece of the given team attacks a square, looking outward from the
+     * square with the knight, pawn, king and sliding attack tables instead of generating the attackers' moves
+     *
+     * @param position the square to test
+     * @param byColor the attacking team
+     * @return True if a piece of byColor could capture on the square
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor byColor) {
+        return isSquareAttacked(ChessBoard.squareIndex(position.getRow(), position.getColumn()), byColor);
+    }
+
+    private boolean isSquareAttacked(int square, TeamColor byColor) {
+        return attackersTo(square, byColor, board.occupiedMask()) != 0;
+    }
+
     /**
      * Determines if the given team is in checkmate
      *
@@ -439,7 +843,7 @@ public class ChessGame {
     public boolean isInCheckmate(TeamColor teamColor) {
         if(!isInCheck(teamColor)) { return false; } //check if the team is in check
         //no valid move and when it is in checkmate
-        return !isValidMove(teamColor);
+        return cachedMoves(teamColor).length == 0;
     }
     /**
      * Determines if the given team is in stalemate, which here is defined as having
@@ -452,30 +856,275 @@ public class ChessGame {
         if(isInCheck(teamColor)) { //check if the team is not in check
             return false;
         }
-        return !isValidMove(teamColor); //No valid move and when it is not in check
+        return cachedMoves(teamColor).length == 0; //No valid move and when it is not in check
+    }
+
+    /**
+     * Determines if a team still has the right to castle on one side, that is neither its king
+     * nor that rook has moved, whether or not castling is possible right now
+     *
+     * @param teamColor the team to ask about
+     * @param kingSide  True for the king's side (column 8), false for the queen's side
+     * @return True if the right has not been lost
+     */
+    public boolean hasCastlingRight(TeamColor teamColor, boolean kingSide) {
+        if(teamColor == TeamColor.WHITE) {
+            return !isWhiteKingMoved && !(kingSide ? isWhiteRookRightMoved : isWhiteRookLeftMoved);
+        }
+        return !isBlackKingMoved && !(kingSide ? isBlackRookRightMoved : isBlackRookLeftMoved);
+    }
+
+    /**
+     * @return column index, 0 to 7, of the pawn that double moved on the last move, or -1 if none did
+     */
+    public int getEnPassantFile() {
+        int state = enPassantState();
+        return state < 0 ? -1 : state & 7;
+    }
+
+    /**
+     * 64-bit Zobrist key of the position: pieces, side to move, castling rights and en passant file.
+     * The piece part is kept up to date by the board as pieces move, so this is O(1).
+     *
+     * @return key that is equal for equal positions
+     */
+    public long positionKey() {
+        return zobristKey();
+    }
+
+    //Body of positionKey, private so constructors can record the first key without calling an overridable method
+    private long zobristKey() {
+        long key = board.pieceKey();
+        if(team == TeamColor.BLACK) {
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        if(!isWhiteKingMoved) {
+            if(!isWhiteRookRightMoved) { key ^= Zobrist.CASTLING[0]; }
+            if(!isWhiteRookLeftMoved) { key ^= Zobrist.CASTLING[1]; }
+        }
+        if(!isBlackKingMoved) {
+            if(!isBlackRookRightMoved) { key ^= Zobrist.CASTLING[2]; }
+            if(!isBlackRookLeftMoved) { key ^= Zobrist.CASTLING[3]; }
+        }
+        int enPassant = enPassantState();
+        if(enPassant >= 0) {
+            key ^= Zobrist.EN_PASSANT[enPassant & 7];
+        }
+        return key;
+    }
+
+    //Every legal move of a team, generated once per position and looked up after that
+    private int[] cachedMoves(TeamColor teamColor) {
+        long key = positionKey();
+        if(teamColor != team) {
+            //key the position as if it were this team's turn; the en passant file belongs to the
+            //side to move and gives the other team no capture, so it must not be in its key either
+            key ^= Zobrist.BLACK_TO_MOVE;
+            int enPassant = enPassantState();
+            if(enPassant >= 0) {
+                key ^= Zobrist.EN_PASSANT[enPassant & 7];
+            }
+        }
+        int[] moves = moveCache.get(key, board);
+        if(moves == null) {
+            scratch.clear();
+            legalMoves(teamColor, scratch);
+            moves = scratch.toArray();
+            moveCache.put(key, board, moves);
+        }
+        return moves;
+    }
+
+    /**
+     * @return the cache validMoves, makeMove and the checkmate and stalemate tests read from
+     */
+    public LegalMoveCache getMoveCache() { return moveCache; }
+
+    /**
+     * Replaces the move cache, for example with a private one whose counters cover only this game
+     *
+     * @param moveCache the cache to use
+     */
+    public void setMoveCache(LegalMoveCache moveCache) { this.moveCache = moveCache; }
+
+    /**
+     * Writes the position in Forsyth-Edwards Notation: placement, side to move, castling
+     * rights, en passant target and the two move counters
+     *
+     * @return the FEN string of the current position
+     */
+    public String toFen() {
+        return newSnapshot().toFen();
+    }
+
+    /**
+     * Gets the position as of the last makeMove (or setGameOver) as an immutable snapshot.
+     * Other threads can read it while this game is being played; a game that has not been
+     * moved since it was built or loaded publishes its first snapshot here.
+     *
+     * @return the latest published snapshot
+     */
+    public BoardSnapshot getSnapshot() {
+        BoardSnapshot current = snapshot;
+        if(current == null) {
+            current = newSnapshot();
+            snapshot = current;
+        }
+        return current;
+    }
+
+    //Keys the snapshot hands on to games built from it; the array is replaced, never written to
+    long[] repetitionKeys() {
+        return repetitionKeys;
     }
 
-    private boolean isValidMove(TeamColor teamColor) { //Check if there is valid move
-        for(int row = 1; row <= 8; row++) {
-            for(int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if(piece != null && piece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> moves = validMoves(position);
-                    if(!moves.isEmpty()) {
-                        return true;
-                    }
+    //Takes on what a position from FEN cannot carry: the snapshot's status and repetition keys
+    void restore(GameStatus status, boolean gameOver, long[] repetitionKeys, BoardSnapshot snapshot) {
+        this.status = status;
+        this.gameOver = gameOver;
+        this.repetitionKeys = repetitionKeys;
+        keyHistory = null;
+        this.snapshot = snapshot;
+    }
+
+    private BoardSnapshot newSnapshot() {
+        return new BoardSnapshot(this, castlingRights(), enPassantState());
+    }
+
+    /**
+     * Reads a position in Forsyth-Edwards Notation in a single pass over the string.
+     * The two move counters may be left off, in which case they start at 0 and 1.
+     *
+     * @param fen the FEN string
+     * @return a new game in that position
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    public static ChessGame fromFen(String fen) {
+        ChessGame game = new ChessGame();
+        ChessBoard board = new ChessBoard();
+        int length = fen.length();
+        int i = 0;
+
+        //piece placement, from row 8 down to row 1
+        int row = 8;
+        int col = 1;
+        for(; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if(c == '/') {
+                if(col != 9 || row == 1) { throw invalidFen(fen); }
+                row--;
+                col = 1;
+            }else if(c >= '1' && c <= '8') {
+                col += c - '0';
+            }else {
+                int type = BoardSnapshot.FEN_PIECES.indexOf(Character.toLowerCase(c));
+                if(type < 0 || col > 8) { throw invalidFen(fen); }
+                TeamColor color = Character.isUpperCase(c) ? TeamColor.WHITE : TeamColor.BLACK;
+                board.addPiece(ChessBoard.squareIndex(row, col++), ChessPiece.of(color, ChessPiece.PieceType.values()[type]));
+            }
+            if(col > 9) { throw invalidFen(fen); }
+        }
+        if(row != 1 || col != 9 || i + 2 >= length) { throw invalidFen(fen); }
+
+        //side to move
+        char side = fen.charAt(++i);
+        if((side != 'w' && side != 'b') || fen.charAt(++i) != ' ') { throw invalidFen(fen); }
+        game.team = side == 'w' ? TeamColor.WHITE : TeamColor.BLACK;
+
+        //castling rights, a right that is not listed counts as a moved rook
+        int rights = 0;
+        i++;
+        if(i < length && fen.charAt(i) == '-') {
+            i++;
+        }else {
+            for(; i < length && fen.charAt(i) != ' '; i++) {
+                switch (fen.charAt(i)) {
+                    case 'K' -> rights |= 1;
+                    case 'Q' -> rights |= 2;
+                    case 'k' -> rights |= 4;
+                    case 'q' -> rights |= 8;
+                    default -> throw invalidFen(fen);
                 }
             }
         }
-        return false;
+        game.isWhiteKingMoved = (rights & 3) == 0;
+        game.isWhiteRookRightMoved = (rights & 1) == 0;
+        game.isWhiteRookLeftMoved = (rights & 2) == 0;
+        game.isBlackKingMoved = (rights & 12) == 0;
+        game.isBlackRookRightMoved = (rights & 4) == 0;
+        game.isBlackRookLeftMoved = (rights & 8) == 0;
+
+        //en passant target, on row 3 after a white double move and row 6 after a black one
+        if(i + 1 >= length || fen.charAt(i) != ' ') { throw invalidFen(fen); }
+        i++;
+        int enPassant = -1;
+        if(fen.charAt(i) == '-') {
+            i++;
+        }else {
+            if(i + 1 >= length) { throw invalidFen(fen); }
+            int file = fen.charAt(i) - 'a';
+            char rank = fen.charAt(i + 1);
+            if(file < 0 || file > 7 || (rank != '3' && rank != '6')) { throw invalidFen(fen); }
+            enPassant = rank == '3' ? file : file + 8;
+            i += 2;
+        }
+        game.setEnPassantState(enPassant);
+
+        //move counters
+        game.halfmoveClock = 0;
+        game.fullmoveNumber = 1;
+        if(i < length) {
+            if(fen.charAt(i) != ' ') { throw invalidFen(fen); }
+            int clock = 0;
+            int start = ++i;
+            for(; i < length && fen.charAt(i) != ' '; i++) {
+                char c = fen.charAt(i);
+                if(c < '0' || c > '9' || clock > 0xFFFF) { throw invalidFen(fen); }
+                clock = clock * 10 + (c - '0');
+            }
+            if(i == start || i + 1 >= length) { throw invalidFen(fen); }
+            int number = 0;
+            for(i++; i < length; i++) {
+                char c = fen.charAt(i);
+                if(c < '0' || c > '9' || number > 1_000_000) { throw invalidFen(fen); }
+                number = number * 10 + (c - '0');
+            }
+            if(number == 0) { throw invalidFen(fen); }
+            game.halfmoveClock = clock;
+            game.fullmoveNumber = number;
+        }
+
+        game.board = board;
+        //the history is unknown, so only the position itself is recorded
+        game.repetitionKeys = new long[]{game.zobristKey()};
+        game.keyHistory = null;
+        game.updateStatus();
+        return game;
+    }
+
+    private static IllegalArgumentException invalidFen(String fen) {
+        return new IllegalArgumentException("Invalid FEN: " + fen);
     }
+
+    /**
+     * @return plies since the last capture or pawn move
+     */
+    public int getHalfmoveClock() { return halfmoveClock; }
+
+    /**
+     * @return the number of the current move, starting at 1 and going up after each black move
+     */
+    public int getFullmoveNumber() { return fullmoveNumber; }
+
     /**
      * Sets this game's chessboard with a given board
      *
      * @param board the new board to use
      */
-    public void setBoard(ChessBoard board) { this.board = board; }
+    public void setBoard(ChessBoard board) {
+        this.board = board;
+        moveHistory.clear();
+    }
     /**
      * Gets the current chessboard
      *
@@ -483,7 +1132,18 @@ public class ChessGame {
      */
     public ChessBoard getBoard() { return board; }
 
-    public void setGameOver(boolean gameOver) { this.gameOver = gameOver; }
+    public void setGameOver(boolean gameOver) {
+        this.gameOver = gameOver;
+        snapshot = newSnapshot();
+    }
+
+    /**
+     * Gets the status of the team to move as of the last makeMove, without recomputing it.
+     * Boards and turns set directly are not reflected until the next move.
+     *
+     * @return the stored status, NORMAL before the first move
+     */
+    public GameStatus getStatus() { return status; }
 
     public boolean getGameOver() { return gameOver; }
 
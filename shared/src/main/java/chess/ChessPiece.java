@@ -11,6 +11,19 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessPiece {
+    //Shared instances for the 12 color/type combinations, indexed by color * 6 + type
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for(ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for(PieceType type : PieceType.values()) {
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    private static final PieceType[] PROMOTIONS = {PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK, PieceType.QUEEN};
+
     private ChessGame.TeamColor pieceColor;
     private ChessPiece.PieceType type;
 
@@ -19,6 +32,20 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Returns the shared piece for a color and type instead of allocating a new one
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return PIECES[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
+    /**
+     * @param index color ordinal * 6 + type ordinal
+     */
+    static ChessPiece of(int index) {
+        return PIECES[index];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -53,126 +80,85 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = new ArrayList<>();
-
-        if(this.type == PieceType.BISHOP) { //Bishop's move
-            int[] possibleRow = {-1, -1, 1, 1};
-            int[] possibleCol = {-1, 1, -1 , 1};
-
-            addLinearMove(board, myPosition, moves, possibleRow, possibleCol);
-        }else if(this.type == PieceType.KNIGHT) { //Knight's move
-            int[] possibleRow = {2,1,-1,-2,-2,-1,1,2};
-            int[] possibleCol = {1,2,2,1,-1,-2,-2,-1};
-
-            addDeltaMove(board, myPosition, moves, possibleRow, possibleCol);
-        }else if(this.type == PieceType.ROOK) { //Rook's move
-            int[] possibleRow = {-1,0,1,0};
-            int[] possibleCol = {0,-1,0,1};
-
-            addLinearMove(board, myPosition, moves, possibleRow, possibleCol);
-        }else if(this.type == PieceType.QUEEN) { //Queen's move
-            int[] possibleRow = {-1,-1,1,1,-1,0,1,0};
-            int[] possibleCol = {-1,1,-1,1,0,-1,0,1};
-
-            addLinearMove(board, myPosition, moves, possibleRow, possibleCol);
-        }else if(this.type == PieceType.KING) { //King's move
-            int[] possibleRow = {-1,-1,1,1,-1,0,1,0};
-            int[] possibleCol = {-1,1,-1,1,0,-1,0,1};
-
-            addDeltaMove(board, myPosition, moves, possibleRow, possibleCol);
-        }else if(this.type == PieceType.PAWN) { //Pawn's move
-            addPawnMoves(board, myPosition, moves);
+        MoveList packed = new MoveList(32);
+        pieceMoves(board, ChessBoard.squareIndex(myPosition.getRow(), myPosition.getColumn()), packed);
+
+        Collection<ChessMove> moves = new ArrayList<>(packed.size());
+        for(int i = 0; i < packed.size(); i++) {
+            moves.add(new ChessMove(myPosition, ChessPosition.of(PackedMove.to(packed.get(i))),
+                    PackedMove.promotionType(packed.get(i))));
         }
         return moves;
     }
 
-    private void addPawnMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
+    /**
+     * Appends the same moves as pieceMoves to a list as PackedMove ints, without allocating
+     *
+     * @param board  board the piece stands on
+     * @param square square index of the piece
+     * @param moves  list to append to
+     */
+    public void pieceMoves(ChessBoard board, int square, MoveList moves) {
+        if(this.type == PieceType.PAWN) { //Pawn's move
+            addPawnMoves(board, square, moves);
+        }else { //every other piece moves to the empty or enemy squares it attacks
+            long attacks = Attacks.of(type, pieceColor, square, board.occupiedMask());
+            addTargets(board, square, attacks & ~board.colorMask(pieceColor), moves);
+        }
+    }
+
+    private void addPawnMoves(ChessBoard board, int square, MoveList moves) {
+        int row = square >>> 3;
+        int col = square & 7;
 
         int next = (pieceColor == ChessGame.TeamColor.WHITE) ? 1 : -1;
-        int startRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 2 : 7;
-        int promotionRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 8 : 1;
+        int startRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 1 : 6;
+        int promotionRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 7 : 0;
 
         int nextMove = row + next;
-        if (nextMove < 1 || nextMove > 8) { return; }
+        if (nextMove < 0 || nextMove > 7) { return; }
         //normal move
-        ChessPosition nextForward = new ChessPosition(nextMove, col);
+        int nextForward = nextMove * 8 + col;
         if(board.getPiece(nextForward) == null) {
             if(nextMove == promotionRow) { //promote
-                ChessPiece.PieceType[] promotion = {PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK, PieceType.QUEEN};
-                for (int i = 0; i < 4; i++) {
-                    moves.add(new ChessMove(myPosition, nextForward, promotion[i]));
-                }
+                addPromotions(square, nextForward, PackedMove.QUIET, moves);
             }else { //move the pawn
-                moves.add(new ChessMove(myPosition, nextForward, null));
+                moves.add(PackedMove.encode(square, nextForward, PackedMove.QUIET));
 
                 //start move
                 if(row == startRow) {
-                    ChessPosition startForward = new ChessPosition(row + 2 * next, col);
+                    int startForward = (row + 2 * next) * 8 + col;
                     if(board.getPiece(startForward) == null) {
-                        moves.add(new ChessMove(myPosition, startForward, null));
+                        moves.add(PackedMove.encode(square, startForward, PackedMove.DOUBLE_PAWN_PUSH));
                     }
                 }
             }
         }
 
-            //capture the enemy
-        int[] possibleCol = {-1, 1};
-        for(int possible : possibleCol) {
-            int captureCol = col + possible;
-
-            ChessPosition capturePiece = new ChessPosition(nextMove, captureCol);
-            ChessPiece piece = board.getPiece(capturePiece);
-
-            if (piece == null || piece.getTeamColor() == this.pieceColor) { continue; }
-
+        //capture the enemy
+        long enemies = board.colorMask(pieceColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        for(long captures = Attacks.pawn(pieceColor, square) & enemies; captures != 0; captures &= captures - 1) {
+            int capturePiece = Long.numberOfTrailingZeros(captures);
             if (nextMove == promotionRow) { //promote and capture
-                ChessPiece.PieceType[] promotion = {PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK, PieceType.QUEEN};
-                for (int i = 0; i < 4; i++) {
-                    moves.add(new ChessMove(myPosition, capturePiece, promotion[i]));
-                }
+                addPromotions(square, capturePiece, PackedMove.CAPTURE, moves);
             } else { //capture
-                moves.add(new ChessMove(myPosition, capturePiece, null));
+                moves.add(PackedMove.encode(square, capturePiece, PackedMove.CAPTURE));
             }
         }
     }
 
-    private void addLinearMove(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves, int[] possibleRow, int[] possibleCol) {
-        for (int i = 0; i < possibleRow.length; i++) {
-            int newRow = myPosition.getRow() + possibleRow[i];
-            int newCol = myPosition.getColumn() + possibleCol[i];
-
-            while (newRow >= 1 && newRow <= 8 && newCol >= 1 && newCol <= 8) {
-                ChessPosition newPosition = new ChessPosition(newRow, newCol);
-                ChessPiece other = board.getPiece(newPosition);
-
-                if (other == null) { //move
-                    moves.add(new ChessMove(myPosition, newPosition, null));
-                } else {
-                    if (other.getTeamColor() != this.pieceColor) { //capture the enemy
-                        moves.add(new ChessMove(myPosition, newPosition, null));
-                    }
-                    break; //stop if something in that position is already there
-                }
-                newRow += possibleRow[i];
-                newCol += possibleCol[i];
-            }
+    private static void addPromotions(int from, int to, int capture, MoveList moves) {
+        for (int i = 0; i < 4; i++) {
+            moves.add(PackedMove.encode(from, to, capture | PackedMove.promotionFlag(PROMOTIONS[i])));
         }
     }
-    private void addDeltaMove(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves, int[] possibleRow, int[] possibleCol) {
-        for (int i = 0; i < possibleRow.length; i++) {
-            int newRow = myPosition.getRow() + possibleRow[i];
-            int newCol = myPosition.getColumn() + possibleCol[i];
-
-            if (newRow >= 1 && newRow <= 8 && newCol >= 1 && newCol <= 8) {
-                ChessPosition newPosition = new ChessPosition(newRow, newCol);
-                ChessPiece other = board.getPiece(newPosition);
 
-                if (other == null || other.getTeamColor() != this.pieceColor) { //move or capture the enemy
-                    moves.add(new ChessMove(myPosition, newPosition, null));
-                }
-            }
+    private static void addTargets(ChessBoard board, int square, long targets, MoveList moves) {
+        long occupied = board.occupiedMask();
+        for(; targets != 0; targets &= targets - 1) {
+            int target = Long.numberOfTrailingZeros(targets);
+            int flag = ((occupied >>> target) & 1) != 0 ? PackedMove.CAPTURE : PackedMove.QUIET; //capture the enemy
+            moves.add(PackedMove.encode(square, target, flag));
         }
     }
     @Override
@@ -9,6 +9,15 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessPosition {
+    //Shared instances for the 64 on-board squares, indexed like ChessBoard.squareIndex
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for(int i = 0; i < 64; i++) {
+            SQUARES[i] = new ChessPosition(i / 8 + 1, i % 8 + 1);
+        }
+    }
+
     private int row;
     private int col;
 
@@ -17,6 +26,25 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Returns the shared position for a square instead of allocating a new one.
+     * Off-board coordinates still get a fresh instance.
+     */
+    public static ChessPosition of(int row, int col) {
+        if(row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+            return SQUARES[(row - 1) * 8 + (col - 1)];
+        }
+        return new ChessPosition(row, col);
+    }
+
+    /**
+     * @param square index from 0 (a1) to 63 (h8)
+     * @return the shared position for that square
+     */
+    public static ChessPosition of(int square) {
+        return SQUARES[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -0,0 +1,134 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of every legal move in a position, as PackedMove ints, keyed by the Zobrist key
+ * of the position with the moving team as the side to move. Each entry also keeps the occupied
+ * squares of the board it was made for, and a lookup from a different board is a miss. The least
+ * recently used position is dropped once the cache is full. Large caches are split into stripes
+ * locked on their own, so one cache can be shared by every game without a single global lock.
+ */
+public final class LegalMoveCache {
+    private static final LegalMoveCache SHARED = new LegalMoveCache(4096);
+    //Positions per stripe before a cache is split, so small caches keep an exact LRU order
+    private static final int STRIPE_SIZE = 256;
+    private static final int MAX_STRIPES = 16;
+
+    private final Stripe[] stripes;
+
+    /**
+     * @param capacity most positions kept at once
+     */
+    public LegalMoveCache(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        int count = Integer.highestOneBit(Math.clamp(capacity / STRIPE_SIZE, 1, MAX_STRIPES));
+        stripes = new Stripe[count];
+        for(int i = 0; i < count; i++) {
+            stripes[i] = new Stripe((capacity + count - 1) / count);
+        }
+    }
+
+    /**
+     * @return the cache games use unless given their own
+     */
+    public static LegalMoveCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the moves stored for the key and board, which callers must not modify, or null on a miss
+     */
+    int[] get(long key, ChessBoard board) {
+        return stripe(key).get(key, board.colorMask(ChessGame.TeamColor.WHITE), board.colorMask(ChessGame.TeamColor.BLACK));
+    }
+
+    void put(long key, ChessBoard board, int[] moves) {
+        stripe(key).put(key, new Entry(board.colorMask(ChessGame.TeamColor.WHITE),
+                board.colorMask(ChessGame.TeamColor.BLACK), moves));
+    }
+
+    //High bits pick the stripe, leaving the low bits to the stripe's own hashing
+    private Stripe stripe(long key) {
+        return stripes[(int) (key >>> 60) & (stripes.length - 1)];
+    }
+
+    public long getHits() {
+        long hits = 0;
+        for(Stripe stripe : stripes) {
+            synchronized (stripe) {
+                hits += stripe.hits;
+            }
+        }
+        return hits;
+    }
+
+    public long getMisses() {
+        long misses = 0;
+        for(Stripe stripe : stripes) {
+            synchronized (stripe) {
+                misses += stripe.misses;
+            }
+        }
+        return misses;
+    }
+
+    public int size() {
+        int size = 0;
+        for(Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Drops every position and zeroes the hit and miss counters
+     */
+    public void clear() {
+        for(Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+                stripe.hits = 0;
+                stripe.misses = 0;
+            }
+        }
+    }
+
+    //Moves of one position, with the white and black pieces of the board they belong to
+    private record Entry(long white, long black, int[] moves) { }
+
+    //One lock's share of the cache, in least recently used order
+    private static final class Stripe {
+        private final Map<Long, Entry> entries;
+        private long hits;
+        private long misses;
+
+        Stripe(int capacity) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized int[] get(long key, long white, long black) {
+            Entry entry = entries.get(key);
+            if(entry == null || entry.white != white || entry.black != black) {
+                misses++;
+                return null;
+            }
+            hits++;
+            return entry.moves;
+        }
+
+        synchronized void put(long key, Entry entry) {
+            entries.put(key, entry);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package chess;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a game's move history as one string of four hex digits per PackedMove, so saved games
+ * and LOAD_GAME messages carry two bytes of text per move instead of MoveList's backing array.
+ * An empty history is left out of the JSON.
+ */
+final class MoveHistoryAdapter extends TypeAdapter<MoveList> {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Override
+    public void write(JsonWriter out, MoveList moves) throws IOException {
+        if(moves == null || moves.isEmpty()) {
+            out.nullValue();
+            return;
+        }
+        char[] text = new char[moves.size() * 4];
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            for(int digit = 0; digit < 4; digit++) {
+                text[i * 4 + digit] = HEX[(move >>> (12 - digit * 4)) & 0xF];
+            }
+        }
+        out.value(new String(text));
+    }
+
+    @Override
+    public MoveList read(JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return new MoveList(16);
+        }
+        if(in.peek() != JsonToken.STRING) {
+            throw new IOException("Move history is not a hex string: " + in.peek() + " at " + in.getPath());
+        }
+        String text = in.nextString();
+        if(text.length() % 4 != 0) {
+            throw new IOException("Move history is not four hex digits per move: " + text);
+        }
+        MoveList moves = new MoveList(Math.max(text.length() / 4, 16));
+        for(int i = 0; i < text.length(); i += 4) {
+            int move = 0;
+            for(int digit = 0; digit < 4; digit++) {
+                int value = Character.digit(text.charAt(i + digit), 16);
+                if(value < 0) {
+                    throw new IOException("Move history is not four hex digits per move: " + text);
+                }
+                move = move << 4 | value;
+            }
+            moves.add(move);
+        }
+        return moves;
+    }
+}
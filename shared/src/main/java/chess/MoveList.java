@@ -0,0 +1,75 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of PackedMove ints backed by a plain array, so generating moves does not allocate
+ */
+public final class MoveList {
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(256); //more than the most moves any position can have
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        if(size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public void swap(int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Drops every move from index size on, keeping the ones before it
+     */
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the moves in the list
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    public boolean contains(int move) {
+        for(int i = 0; i < size; i++) {
+            if(moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
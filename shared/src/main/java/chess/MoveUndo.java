@@ -0,0 +1,30 @@
+package chess;
+
+/**
+ * Everything ChessGame.doMove changed that ChessGame.undoMove needs to put back
+ */
+public final class MoveUndo {
+    final ChessMove move;
+    final int packedMove;
+    final int state;
+
+    MoveUndo(ChessMove move, int packedMove, int state) {
+        this.move = move;
+        this.packedMove = packedMove;
+        this.state = state;
+    }
+
+    /**
+     * @return the move this record takes back
+     */
+    public ChessMove getMove() {
+        return move;
+    }
+
+    /**
+     * @return the piece removed by the move, or null if nothing was captured
+     */
+    public ChessPiece getCaptured() {
+        return ChessGame.capturedPiece(state);
+    }
+}
@@ -0,0 +1,133 @@
+package chess;
+
+/**
+ * Moves packed into the low 16 bits of an int so they can be generated and stored without
+ * allocation: from square in bits 0-5, to square in bits 6-11 and a flag in bits 12-15.
+ * Squares are ChessBoard.squareIndex values, 0 (a1) to 63 (h8).
+ */
+public final class PackedMove {
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    //promotions, add CAPTURE for a promotion that also captures
+    public static final int KNIGHT_PROMOTION = 8;
+    public static final int BISHOP_PROMOTION = 9;
+    public static final int ROOK_PROMOTION = 10;
+    public static final int QUEEN_PROMOTION = 11;
+
+    //a1 to a1 can never be played, so 0 doubles as "no move"
+    public static final int NONE = 0;
+
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN
+    };
+
+    private PackedMove() { }
+
+    public static int encode(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 12);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flag(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (flag(move) & KNIGHT_PROMOTION) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        int flag = flag(move);
+        return flag == KING_CASTLE || flag == QUEEN_CASTLE;
+    }
+
+    /**
+     * @return piece a pawn promotes to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotionType(int move) {
+        return isPromotion(move) ? PROMOTION_TYPES[flag(move) & 3] : null;
+    }
+
+    /**
+     * @return promotion flag for the piece type, without the capture bit
+     * @throws IllegalArgumentException if a pawn cannot promote to the type
+     */
+    public static int promotionFlag(ChessPiece.PieceType type) {
+        return switch (type) {
+            case QUEEN -> QUEEN_PROMOTION;
+            case KNIGHT -> KNIGHT_PROMOTION;
+            case BISHOP -> BISHOP_PROMOTION;
+            case ROOK -> ROOK_PROMOTION;
+            case KING, PAWN -> throw new IllegalArgumentException("Cannot promote to " + type);
+        };
+    }
+
+    /**
+     * Packs a ChessMove, reading the board to tell captures, castling, en passant and double pushes apart
+     *
+     * @param move  move to pack
+     * @param board board the move is about to be played on
+     * @return the packed move
+     * @throws IllegalArgumentException if the move promotes to a king or pawn
+     */
+    public static int of(ChessMove move, ChessBoard board) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        int from = ChessBoard.squareIndex(start.getRow(), start.getColumn());
+        int to = ChessBoard.squareIndex(end.getRow(), end.getColumn());
+        ChessPiece piece = board.getPiece(from);
+        boolean capture = board.getPiece(to) != null;
+
+        int flag = capture ? CAPTURE : QUIET;
+        if(piece != null && piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            if(move.getPromotionPiece() != null) {
+                flag |= promotionFlag(move.getPromotionPiece());
+            }else if(!capture && start.getColumn() != end.getColumn()) {
+                flag = EN_PASSANT;
+            }else if(Math.abs(end.getRow() - start.getRow()) == 2) {
+                flag = DOUBLE_PAWN_PUSH;
+            }
+        }else if(piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && start.getColumn() == 5) {
+            if(end.getColumn() == 3) {
+                flag = QUEEN_CASTLE;
+            }else if(end.getColumn() == 7) {
+                flag = KING_CASTLE;
+            }
+        }
+        return encode(from, to, flag);
+    }
+
+    /**
+     * @return the move as a ChessMove, using the shared ChessPosition instances
+     */
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotionType(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, such as e2e4 or e7e8q
+     */
+    public static String toString(int move) {
+        String text = ChessPosition.of(from(move)).toString() + ChessPosition.of(to(move));
+        if(isPromotion(move)) {
+            text += "nbrq".charAt(flag(move) & 3);
+        }
+        return text;
+    }
+}
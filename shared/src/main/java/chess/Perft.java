@@ -0,0 +1,203 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth, the standard way to check a
+ * move generator against known results and to time it.
+ * <p>
+ * divide splits the count at the root moves and runs one fork/join task per move, each on its
+ * own copy of the game, sharing a PerftHashTable so transpositions are counted once.
+ */
+public final class Perft {
+    private Perft() { }
+
+    /**
+     * Leaf counts broken down the way published perft tables list them
+     */
+    public static final class Stats {
+        public long nodes;
+        public long captures;
+        public long enPassants;
+        public long castles;
+        public long promotions;
+        public long checks;
+        public long checkmates;
+        public long elapsedNanos;
+
+        /**
+         * @return leaf nodes per second over the run that produced these stats
+         */
+        public double nodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("nodes %d, captures %d, e.p. %d, castles %d, promotions %d, checks %d, checkmates %d, %.0f nodes/s",
+                    nodes, captures, enPassants, castles, promotions, checks, checkmates, nodesPerSecond());
+        }
+    }
+
+    /**
+     * Counts leaf nodes only, counting the last ply straight from the move list
+     *
+     * @param game  position to start from, left as it was found
+     * @param depth plies to search
+     * @return number of leaf nodes
+     */
+    public static long count(ChessGame game, int depth) {
+        if(depth == 0) { return 1; }
+        return count(game, depth, newLists(depth));
+    }
+
+    /**
+     * Walks every leaf and classifies the move that reached it
+     *
+     * @param game  position to start from, left as it was found
+     * @param depth plies to search, at least 1
+     * @return leaf counts and the time taken
+     */
+    public static Stats stats(ChessGame game, int depth) {
+        Stats stats = new Stats();
+        long start = System.nanoTime();
+        stats(game, depth, newLists(depth), stats);
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    /**
+     * Counts each root move's subtree in parallel
+     *
+     * @param game  position to start from, which is only read
+     * @param depth plies to search, at least 1
+     * @param pool  pool to run the root moves on
+     * @param hash  table shared by the tasks, or null to count every transposition again
+     * @return leaf count below each root move in coordinate notation such as e2e4, sorted by
+     * move, for comparing line by line with another program's divide
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth, ForkJoinPool pool, PerftHashTable hash) {
+        if(depth < 1) {
+            throw new IllegalArgumentException("Divide needs a depth of at least 1");
+        }
+        MoveList moves = new MoveList();
+        game.legalMoves(game.getTeamTurn(), moves);
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(moves.size());
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            ChessGame copy = new ChessGame(game);
+            tasks.add(pool.submit(() -> {
+                copy.doMove(move);
+                return depth == 1 ? 1L : count(copy, depth - 1, newLists(depth - 1), hash);
+            }));
+        }
+
+        Map<String, Long> counts = new TreeMap<>();
+        for(int i = 0; i < moves.size(); i++) {
+            counts.put(PackedMove.toString(moves.get(i)), tasks.get(i).join());
+        }
+        return counts;
+    }
+
+    /**
+     * Counts leaf nodes in parallel, split at the root moves
+     *
+     * @param game  position to start from, which is only read
+     * @param depth plies to search
+     * @param pool  pool to run the root moves on
+     * @param hash  table shared by the tasks, or null
+     * @return number of leaf nodes
+     */
+    public static long count(ChessGame game, int depth, ForkJoinPool pool, PerftHashTable hash) {
+        if(depth == 0) { return 1; }
+        long nodes = 0;
+        for(long leaves : divide(game, depth, pool, hash).values()) {
+            nodes += leaves;
+        }
+        return nodes;
+    }
+
+    static MoveList[] newLists(int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for(int i = 0; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    static long count(ChessGame game, int depth, MoveList[] lists) {
+        MoveList moves = lists[depth];
+        moves.clear();
+        game.legalMoves(game.getTeamTurn(), moves);
+        if(depth == 1) { return moves.size(); }
+
+        long nodes = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int state = game.doMove(move);
+            nodes += count(game, depth - 1, lists);
+            game.undoMove(move, state);
+        }
+        return nodes;
+    }
+
+    //count, looking subtrees of two plies or more up in the hash first
+    static long count(ChessGame game, int depth, MoveList[] lists, PerftHashTable hash) {
+        if(hash == null || depth == 1) { return count(game, depth, lists); }
+        long key = game.positionKey();
+        long nodes = hash.probe(key, depth);
+        if(nodes >= 0) { return nodes; }
+
+        MoveList moves = lists[depth];
+        moves.clear();
+        game.legalMoves(game.getTeamTurn(), moves);
+        nodes = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int state = game.doMove(move);
+            nodes += count(game, depth - 1, lists, hash);
+            game.undoMove(move, state);
+        }
+        hash.store(key, depth, nodes);
+        return nodes;
+    }
+
+    static void stats(ChessGame game, int depth, MoveList[] lists, Stats stats) {
+        MoveList moves = lists[depth];
+        moves.clear();
+        game.legalMoves(game.getTeamTurn(), moves);
+
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int state = game.doMove(move);
+            if(depth == 1) {
+                classify(game, move, stats);
+            }else {
+                stats(game, depth - 1, lists, stats);
+            }
+            game.undoMove(move, state);
+        }
+    }
+
+    //Called with the move already made, so the side to move is the one that may be in check
+    private static void classify(ChessGame game, int move, Stats stats) {
+        stats.nodes++;
+        int flag = PackedMove.flag(move);
+        if(PackedMove.isCapture(move)) { stats.captures++; }
+        if(flag == PackedMove.EN_PASSANT) { stats.enPassants++; }
+        if(PackedMove.isCastle(move)) { stats.castles++; }
+        if(PackedMove.isPromotion(move)) { stats.promotions++; }
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        if(game.isInCheck(toMove)) {
+            stats.checks++;
+            if(!game.hasAnyLegalMove(toMove)) {
+                stats.checkmates++;
+            }
+        }
+    }
+}
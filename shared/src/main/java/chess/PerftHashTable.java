@@ -0,0 +1,78 @@
+package chess;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Remembers perft subtree counts by position key and depth, so a position reached again by
+ * another move order is counted once. Shared by every thread of a parallel perft.
+ * <p>
+ * Laid out like the engine's transposition table: one long[] of two-word entries, the key
+ * XORed with the data and then the data, read and written without locks, so an entry torn by
+ * a racing write reads as a miss. Two entries make a bucket; the first keeps the deepest
+ * subtree seen and the second takes whatever the first turns away.
+ */
+public final class PerftHashTable {
+    private static final int ENTRY_BYTES = 16;
+    //opaque access keeps each long whole, which plain access to a long[] does not promise
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] table;
+    private final long bucketMask;
+
+    /**
+     * @param megabytes memory to use, rounded down to a power of two number of buckets
+     */
+    public PerftHashTable(int megabytes) {
+        if(megabytes < 1) {
+            throw new IllegalArgumentException("Size must be at least 1 MB");
+        }
+        long buckets = Long.highestOneBit(Math.min(megabytes, 16_384) * (1L << 20) / (2 * ENTRY_BYTES));
+        if(buckets * 4 > Integer.MAX_VALUE - 8) {
+            buckets >>= 1;
+        }
+        table = new long[(int) (buckets * 4)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Empties the table, which is not safe while a perft is running
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    /**
+     * @return leaf count stored for the position at this depth, or -1 if none is
+     */
+    long probe(long key, int depth) {
+        int base = bucket(key);
+        for(int i = base; i < base + 4; i += 2) {
+            long data = (long) SLOTS.getOpaque(table, i + 1);
+            if(data != 0 && ((long) SLOTS.getOpaque(table, i) ^ data) == key && (data & 0xFF) == depth) {
+                return data >>> 8;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param depth  plies below the position, 1 to 255
+     * @param leaves leaf count, below 2^56
+     */
+    void store(long key, int depth, long leaves) {
+        int slot = bucket(key);
+        long deepest = (long) SLOTS.getOpaque(table, slot + 1);
+        if((deepest & 0xFF) > depth) {
+            slot += 2;
+        }
+        long data = leaves << 8 | depth;
+        SLOTS.setOpaque(table, slot, key ^ data);
+        SLOTS.setOpaque(table, slot + 1, data);
+    }
+
+    private int bucket(long key) {
+        return (int) (key & bucketMask) * 4;
+    }
+}
@@ -0,0 +1,70 @@
+package chess;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line perft: prints the divide for a position, then the total and the speed.
+ * <pre>
+ * java -cp shared/target/classes chess.PerftMain [--threads N] [--hash MB] depth [FEN]
+ * </pre>
+ * The FEN may be given as one argument or as its six fields; the default is the start position.
+ * Threads default to one per processor and the hash to 256 MB; --hash 0 turns it off.
+ */
+public class PerftMain {
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String USAGE = "Usage: PerftMain [--threads N] [--hash MB] depth [FEN]";
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashMegabytes = 256;
+        int depth = -1;
+        StringBuilder fen = new StringBuilder();
+        try {
+            for(int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--hash" -> hashMegabytes = Integer.parseInt(args[++i]);
+                    default -> {
+                        if(depth < 0) {
+                            depth = Integer.parseInt(args[i]);
+                        }else {
+                            fen.append(fen.isEmpty() ? "" : " ").append(args[i]);
+                        }
+                    }
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+            depth = -1;
+        }
+        if(depth < 1 || threads < 1) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        ChessGame game;
+        try {
+            game = ChessGame.fromFen(fen.isEmpty() ? START : fen.toString());
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        PerftHashTable hash = hashMegabytes > 0 ? new PerftHashTable(hashMegabytes) : null;
+        long start = System.nanoTime();
+        Map<String, Long> divide = Perft.divide(game, depth, pool, hash);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        long nodes = 0;
+        for(Map.Entry<String, Long> entry : divide.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            nodes += entry.getValue();
+        }
+        System.out.println();
+        System.out.println("Nodes: " + nodes);
+        System.out.printf("Time: %.3f s, %.0f nodes/s, %d threads%n", elapsed / 1e9, nodes * 1e9 / Math.max(elapsed, 1), threads);
+    }
+}
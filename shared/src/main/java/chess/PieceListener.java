@@ -0,0 +1,17 @@
+package chess;
+
+/**
+ * Told about every piece a ChessBoard gains or loses, so state derived from the pieces, such
+ * as a neural evaluator's accumulators, can follow the board move by move instead of being
+ * rebuilt. Pieces are given as color ordinal * 6 + type ordinal and squares as square indexes.
+ */
+public interface PieceListener {
+    /**
+     * The board is being rebuilt from scratch; pieceAdded follows for every piece on it
+     */
+    void reset();
+
+    void pieceAdded(int piece, int square);
+
+    void pieceRemoved(int piece, int square);
+}
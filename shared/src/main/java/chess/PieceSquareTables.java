@@ -0,0 +1,113 @@
+package chess;
+
+/**
+ * Material plus piece-square bonuses for the opening/middlegame and for the endgame, which
+ * ChessBoard keeps summed as pieces come and go. Scores are centipawns, positive for white.
+ */
+final class PieceSquareTables {
+    //indexed by PieceType ordinal: king, queen, bishop, knight, rook, pawn
+    private static final int[] MIDGAME_VALUES = {0, 900, 330, 320, 500, 100};
+    private static final int[] ENDGAME_VALUES = {0, 940, 320, 300, 520, 120};
+    //how much each piece counts toward the midgame; the starting position totals MAX_PHASE
+    static final int[] PHASE = {0, 4, 1, 1, 2, 0};
+    static final int MAX_PHASE = 24;
+
+    //Bonuses by square as white sees the board, row 8 first, so a white piece on square s
+    //reads entry s ^ 56 and a black piece reads entry s
+    private static final int[][] MIDGAME = {
+            { //king, sheltered behind its pawns
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                     20,  20,   0,   0,   0,   0,  20,  20,
+                     20,  30,  10,   0,   0,  10,  30,  20},
+            { //queen
+                    -20, -10, -10,  -5,  -5, -10, -10, -20,
+                    -10,   0,   0,   0,   0,   0,   0, -10,
+                    -10,   0,   5,   5,   5,   5,   0, -10,
+                     -5,   0,   5,   5,   5,   5,   0,  -5,
+                      0,   0,   5,   5,   5,   5,   0,  -5,
+                    -10,   5,   5,   5,   5,   5,   0, -10,
+                    -10,   0,   5,   0,   0,   0,   0, -10,
+                    -20, -10, -10,  -5,  -5, -10, -10, -20},
+            { //bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10,   0,   0,   0,   0,   0,   0, -10,
+                    -10,   0,   5,  10,  10,   5,   0, -10,
+                    -10,   5,   5,  10,  10,   5,   5, -10,
+                    -10,   0,  10,  10,  10,  10,   0, -10,
+                    -10,  10,  10,  10,  10,  10,  10, -10,
+                    -10,   5,   0,   0,   0,   0,   5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20},
+            { //knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20,   0,   0,   0,   0, -20, -40,
+                    -30,   0,  10,  15,  15,  10,   0, -30,
+                    -30,   5,  15,  20,  20,  15,   5, -30,
+                    -30,   0,  15,  20,  20,  15,   0, -30,
+                    -30,   5,  10,  15,  15,  10,   5, -30,
+                    -40, -20,   0,   5,   5,   0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50},
+            { //rook
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                      5,  10,  10,  10,  10,  10,  10,   5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                      0,   0,   0,   5,   5,   0,   0,   0},
+            { //pawn
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                     50,  50,  50,  50,  50,  50,  50,  50,
+                     10,  10,  20,  30,  30,  20,  10,  10,
+                      5,   5,  10,  25,  25,  10,   5,   5,
+                      0,   0,   0,  20,  20,   0,   0,   0,
+                      5,  -5, -10,   0,   0, -10,  -5,   5,
+                      5,  10,  10, -20, -20,  10,  10,   5,
+                      0,   0,   0,   0,   0,   0,   0,   0}
+    };
+
+    //Pieces other than the king and pawns keep their midgame tables
+    private static final int[][] ENDGAME = {
+            { //king, toward the center once the queens are off
+                    -50, -40, -30, -20, -20, -30, -40, -50,
+                    -30, -20, -10,   0,   0, -10, -20, -30,
+                    -30, -10,  20,  30,  30,  20, -10, -30,
+                    -30, -10,  30,  40,  40,  30, -10, -30,
+                    -30, -10,  30,  40,  40,  30, -10, -30,
+                    -30, -10,  20,  30,  30,  20, -10, -30,
+                    -30, -30,   0,   0,   0,   0, -30, -30,
+                    -50, -30, -30, -30, -30, -30, -30, -50},
+            MIDGAME[1], MIDGAME[2], MIDGAME[3], MIDGAME[4],
+            { //pawn, worth more the closer it is to promoting
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                     80,  80,  80,  80,  80,  80,  80,  80,
+                     50,  50,  50,  50,  50,  50,  50,  50,
+                     30,  30,  30,  30,  30,  30,  30,  30,
+                     20,  20,  20,  20,  20,  20,  20,  20,
+                     10,  10,  10,  10,  10,  10,  10,  10,
+                     10,  10,  10,  10,  10,  10,  10,  10,
+                      0,   0,   0,   0,   0,   0,   0,   0}
+    };
+
+    //indexed by ((color * 6 + type) * 64 + square), like Zobrist.PIECE_SQUARE, and signed for the color
+    static final int[] MIDGAME_SCORES = signedScores(MIDGAME, MIDGAME_VALUES);
+    static final int[] ENDGAME_SCORES = signedScores(ENDGAME, ENDGAME_VALUES);
+
+    private static int[] signedScores(int[][] tables, int[] values) {
+        int[] scores = new int[12 * 64];
+        for(int type = 0; type < 6; type++) {
+            for(int square = 0; square < 64; square++) {
+                scores[type * 64 + square] = values[type] + tables[type][square ^ 56];
+                scores[(6 + type) * 64 + square] = -(values[type] + tables[type][square]);
+            }
+        }
+        return scores;
+    }
+
+    private PieceSquareTables() { }
+}
@@ -0,0 +1,32 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64-bit keys XORed together to hash a position. The seed is fixed so keys
+ * are stable between runs and can be stored or shared.
+ */
+final class Zobrist {
+    //indexed by ((color * 6 + type) * 64 + square)
+    static final long[] PIECE_SQUARE = new long[12 * 64];
+    //white king side, white queen side, black king side, black queen side
+    static final long[] CASTLING = new long[4];
+    static final long[] EN_PASSANT = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for(int i = 0; i < PIECE_SQUARE.length; i++) {
+            PIECE_SQUARE[i] = random.nextLong();
+        }
+        for(int i = 0; i < CASTLING.length; i++) {
+            CASTLING[i] = random.nextLong();
+        }
+        for(int i = 0; i < EN_PASSANT.length; i++) {
+            EN_PASSANT[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() { }
+}
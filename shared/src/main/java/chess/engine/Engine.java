@@ -0,0 +1,177 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PieceListener;
+
+import java.util.SplittableRandom;
+
+/**
+ * Computer opponent: picks a move for the side to move by alpha-beta search. An engine keeps
+ * its transposition table and move-ordering history between searches, which helps when it
+ * plays a whole game. One search runs at a time; call search from one thread at a time.
+ * <p>
+ * With more than one thread the engine runs a Lazy SMP search: every thread searches the same
+ * root on its own copy of the game, half of them starting one iteration deeper, and they
+ * share only the transposition table, so each thread's finished iterations steer the others.
+ * The calling thread is the main one. When it stops the helpers are told to stop, and the
+ * move comes from whichever thread finished the deepest iteration, the lowest-numbered one on a tie.
+ * <p>
+ * An engine given an opening book plays from it without searching while the position is in it.
+ */
+public final class Engine {
+    public static final int MATE = 30_000;
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private final TranspositionTable table;
+    private final Searcher[] searchers;
+    private final SplittableRandom random = new SplittableRandom();
+    private volatile PolyglotBook book;
+
+    public Engine() {
+        this(new PawnStructureEvaluator());
+    }
+
+    public Engine(Evaluator evaluator) {
+        this(evaluator, new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * @param evaluator scores the leaves
+     * @param table     transposition table, which may be shared with engines on other threads
+     */
+    public Engine(Evaluator evaluator, TranspositionTable table) {
+        this(evaluator, table, 1);
+    }
+
+    /**
+     * @param evaluator scores the leaves for every search thread, so it must be thread safe
+     * @param table     transposition table shared by the search threads
+     * @param threads   search threads, counting the caller's
+     */
+    public Engine(Evaluator evaluator, TranspositionTable table, int threads) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("Engine needs at least one thread");
+        }
+        this.table = table;
+        searchers = new Searcher[threads];
+        for(int i = 0; i < threads; i++) {
+            searchers[i] = new Searcher(evaluator, table);
+        }
+    }
+
+    /**
+     * @return search threads, counting the caller's
+     */
+    public int getThreads() {
+        return searchers.length;
+    }
+
+    /**
+     * @param book opening book to play from, or null to always search
+     */
+    public void setBook(PolyglotBook book) {
+        this.book = book;
+    }
+
+    public PolyglotBook getBook() {
+        return book;
+    }
+
+    /**
+     * Searches the position until a limit is reached. The game is played forward and taken
+     * back during the search and left as it was found, so a game other threads are reading
+     * should be searched through a copy such as getSnapshot().toGame(). A PieceListener an
+     * evaluator attaches to the board during the search is detached again when it ends.
+     * A node budget applies to the main thread; helpers stop when it does.
+     *
+     * @param game   position to search
+     * @param limits when to stop
+     * @return the best move found and the search statistics, with nodes summed over every thread;
+     * a move taken from the book has depth 0 and no nodes
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        PolyglotBook openingBook = book;
+        if(openingBook != null) {
+            ChessMove move = openingBook.pickMove(game, random);
+            if(move != null) {
+                return new SearchResult(move, 0, 0, 0, 0);
+            }
+        }
+        ChessBoard board = game.getBoard();
+        PieceListener listener = board.getPieceListener();
+        try {
+            return searchThreads(game, limits);
+        } finally {
+            if(board.getPieceListener() != listener) { //the evaluator's accumulators must not outlive the search
+                board.setPieceListener(listener);
+            }
+        }
+    }
+
+    private SearchResult searchThreads(ChessGame game, SearchLimits limits) {
+        table.newSearch();
+        if(searchers.length == 1) {
+            return searchers[0].search(game, limits, 1);
+        }
+
+        SearchResult[] results = new SearchResult[searchers.length];
+        Thread[] helpers = new Thread[searchers.length - 1];
+        SearchLimits helperLimits = new SearchLimits(limits.depth(), 0, limits.millis());
+        for(int i = 0; i < searchers.length; i++) {
+            searchers[i].setAborted(false);
+        }
+        for(int i = 1; i < searchers.length; i++) {
+            int index = i;
+            ChessGame copy = new ChessGame(game);
+            helpers[i - 1] = new Thread(() -> results[index] = searchers[index].search(copy, helperLimits, 1 + (index & 1)),
+                    "search-helper-" + i);
+            helpers[i - 1].setDaemon(true);
+            helpers[i - 1].start();
+        }
+
+        results[0] = searchers[0].search(game, limits, 1);
+        for(int i = 1; i < searchers.length; i++) {
+            searchers[i].setAborted(true);
+        }
+        boolean interrupted = false;
+        for(Thread helper : helpers) {
+            while(true) {
+                try {
+                    helper.join();
+                    break;
+                } catch (InterruptedException ex) { //the helpers stop promptly, finish waiting first
+                    interrupted = true;
+                }
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return combine(results);
+    }
+
+    //Deepest finished iteration wins, ties going to the lower thread number
+    private static SearchResult combine(SearchResult[] results) {
+        SearchResult best = results[0];
+        long nodes = 0;
+        for(SearchResult result : results) {
+            nodes += result.nodes();
+            if(result.depth() > best.depth() && result.bestMove() != null) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, results[0].elapsedNanos());
+    }
+
+    /**
+     * Forgets everything learned from earlier searches, for starting an unrelated game
+     */
+    public void clear() {
+        table.clear();
+        for(Searcher searcher : searchers) {
+            searcher.clear();
+        }
+    }
+}
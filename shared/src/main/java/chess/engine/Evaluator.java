@@ -0,0 +1,16 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+/**
+ * Static evaluation used at the leaves of the search
+ */
+public interface Evaluator {
+    /**
+     * Scores the position without searching. Called once per leaf, so it must not allocate.
+     *
+     * @param game position to score
+     * @return score in centipawns from the point of view of the team to move
+     */
+    int evaluate(ChessGame game);
+}
@@ -0,0 +1,31 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+/**
+ * Material plus piece-square tables, blended from middlegame to endgame by the pieces left.
+ * The board keeps both sums up to date as pieces are added and removed, so scoring a leaf
+ * reads three numbers instead of walking the pieces.
+ */
+public class MaterialEvaluator implements Evaluator {
+    static final int MAX_PHASE = 24;
+
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        return forSideToMove(game, taper(board.midgameScore(), board.endgameScore(), board.phase()));
+    }
+
+    /**
+     * @param phase 0 (endgame) to MAX_PHASE (middlegame)
+     * @return the two scores blended in proportion to the phase
+     */
+    static int taper(int midgame, int endgame, int phase) {
+        return (midgame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+    }
+
+    static int forSideToMove(ChessGame game, int whiteScore) {
+        return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? whiteScore : -whiteScore;
+    }
+}
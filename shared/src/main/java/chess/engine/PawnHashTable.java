@@ -0,0 +1,74 @@
+package chess.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Remembers pawn-structure scores by the board's pawn-only key. Pawns move rarely, so most
+ * positions a search visits share their pawn structure with one already scored.
+ * <p>
+ * Laid out like TranspositionTable: one long[] of two-word entries, the key XORed with the
+ * data and then the data, read and written without locks, so search threads can share it and
+ * an entry torn by a racing write reads as a miss.
+ */
+final class PawnHashTable {
+    //opaque access keeps each long whole, which plain access to a long[] does not promise
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    //set in every stored data word, so an empty slot never matches
+    private static final long PRESENT = 1L << 32;
+
+    private final long[] table;
+    private final long mask;
+
+    /**
+     * @param entries slots, rounded down to a power of two
+     */
+    PawnHashTable(int entries) {
+        if(entries < 1) {
+            throw new IllegalArgumentException("Pawn hash needs at least one entry");
+        }
+        int size = Integer.highestOneBit(entries);
+        table = new long[size * 2];
+        mask = size - 1;
+    }
+
+    /**
+     * @return the packed scores for the key, or 0 if none are stored
+     */
+    long probe(long pawnKey) {
+        int slot = slot(pawnKey);
+        long data = (long) SLOTS.getOpaque(table, slot + 1);
+        if(data != 0 && ((long) SLOTS.getOpaque(table, slot) ^ data) == pawnKey) {
+            return data;
+        }
+        return 0;
+    }
+
+    /**
+     * Always replaces, since every entry costs the same to recompute
+     *
+     * @param data scores made by pack
+     */
+    void store(long pawnKey, long data) {
+        int slot = slot(pawnKey);
+        SLOTS.setOpaque(table, slot, pawnKey ^ data);
+        SLOTS.setOpaque(table, slot + 1, data);
+    }
+
+    private int slot(long pawnKey) {
+        return (int) (pawnKey & mask) * 2;
+    }
+
+    //midgame in bits 0-15, endgame in 16-31, PRESENT above
+    static long pack(int midgame, int endgame) {
+        return (midgame & 0xFFFFL) | (endgame & 0xFFFFL) << 16 | PRESENT;
+    }
+
+    static int midgame(long entry) {
+        return (short) entry;
+    }
+
+    static int endgame(long entry) {
+        return (short) (entry >>> 16);
+    }
+}
@@ -0,0 +1,108 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * MaterialEvaluator plus pawn structure: doubled and isolated pawns cost, passed pawns earn
+ * more the further they have run. The structure terms depend on the pawns alone, so they are
+ * cached in a pawn hash table keyed by the board's pawn key, which is safe to share between
+ * search threads.
+ */
+public class PawnStructureEvaluator extends MaterialEvaluator {
+    public static final int DEFAULT_PAWN_HASH_ENTRIES = 1 << 14;
+
+    private static final int DOUBLED_MIDGAME = 10;
+    private static final int DOUBLED_ENDGAME = 20;
+    private static final int ISOLATED_MIDGAME = 15;
+    private static final int ISOLATED_ENDGAME = 10;
+    //indexed by how many rows the pawn has advanced from its own back row
+    private static final int[] PASSED_MIDGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 55, 80, 110, 0};
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    //squares ahead of a pawn on its own and the neighbouring files, which an enemy pawn must hold to stop it
+    private static final long[] WHITE_PASSED_SPAN = new long[64];
+    private static final long[] BLACK_PASSED_SPAN = new long[64];
+
+    static {
+        for(int file = 0; file < 8; file++) {
+            FILES[file] = 0x0101_0101_0101_0101L << file;
+        }
+        for(int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0) | (file < 7 ? FILES[file + 1] : 0);
+        }
+        for(int square = 0; square < 64; square++) {
+            int row = square >>> 3;
+            long files = FILES[square & 7] | ADJACENT_FILES[square & 7];
+            WHITE_PASSED_SPAN[square] = row == 7 ? 0 : files & (-1L << (8 * (row + 1)));
+            BLACK_PASSED_SPAN[square] = files & ((1L << (8 * row)) - 1);
+        }
+    }
+
+    private final PawnHashTable pawnHash;
+
+    public PawnStructureEvaluator() {
+        this(DEFAULT_PAWN_HASH_ENTRIES);
+    }
+
+    /**
+     * @param pawnHashEntries pawn structures to cache, rounded down to a power of two
+     */
+    public PawnStructureEvaluator(int pawnHashEntries) {
+        pawnHash = new PawnHashTable(pawnHashEntries);
+    }
+
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long pawnKey = board.pawnKey();
+        long pawns = pawnHash.probe(pawnKey);
+        if(pawns == 0) {
+            pawns = scorePawns(board.pieceMask(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                    board.pieceMask(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            pawnHash.store(pawnKey, pawns);
+        }
+        int midgame = board.midgameScore() + PawnHashTable.midgame(pawns);
+        int endgame = board.endgameScore() + PawnHashTable.endgame(pawns);
+        return forSideToMove(game, taper(midgame, endgame, board.phase()));
+    }
+
+    /**
+     * @return the structure terms, positive for white, packed by PawnHashTable.pack
+     */
+    static long scorePawns(long white, long black) {
+        int midgame = 0;
+        int endgame = 0;
+        for(long file : FILES) {
+            int doubled = Math.max(Long.bitCount(white & file) - 1, 0) - Math.max(Long.bitCount(black & file) - 1, 0);
+            midgame -= doubled * DOUBLED_MIDGAME;
+            endgame -= doubled * DOUBLED_ENDGAME;
+        }
+        for(long mask = white; mask != 0; mask &= mask - 1) {
+            int square = Long.numberOfTrailingZeros(mask);
+            if((white & ADJACENT_FILES[square & 7]) == 0) {
+                midgame -= ISOLATED_MIDGAME;
+                endgame -= ISOLATED_ENDGAME;
+            }
+            if((black & WHITE_PASSED_SPAN[square]) == 0) {
+                midgame += PASSED_MIDGAME[square >>> 3];
+                endgame += PASSED_ENDGAME[square >>> 3];
+            }
+        }
+        for(long mask = black; mask != 0; mask &= mask - 1) {
+            int square = Long.numberOfTrailingZeros(mask);
+            if((black & ADJACENT_FILES[square & 7]) == 0) {
+                midgame += ISOLATED_MIDGAME;
+                endgame += ISOLATED_ENDGAME;
+            }
+            if((white & BLACK_PASSED_SPAN[square]) == 0) {
+                midgame -= PASSED_MIDGAME[7 - (square >>> 3)];
+                endgame -= PASSED_ENDGAME[7 - (square >>> 3)];
+            }
+        }
+        return PawnHashTable.pack(midgame, endgame);
+    }
+}
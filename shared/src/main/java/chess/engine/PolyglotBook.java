@@ -0,0 +1,163 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.random.RandomGenerator;
+
+/**
+ * Opening book in the Polyglot .bin format: 16-byte big-endian entries of key, move, weight and
+ * learn data, sorted by key. The file is memory-mapped and searched in place with absolute
+ * reads, so it is never copied onto the heap and one open book can serve every thread.
+ */
+public final class PolyglotBook {
+    private static final int ENTRY_BYTES = 16;
+    //Polyglot promotion codes 1-4: knight, bishop, rook, queen
+    private static final ChessPiece.PieceType[] PROMOTIONS = {null, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN};
+
+    private final MappedByteBuffer entries;
+    private final int count;
+    private final PolyglotKeys keys;
+
+    private PolyglotBook(MappedByteBuffer entries, int count, PolyglotKeys keys) {
+        this.entries = entries;
+        this.count = count;
+        this.keys = keys;
+    }
+
+    /**
+     * Maps a book file keyed with the standard Polyglot random numbers
+     *
+     * @param file the .bin book, at most 2 GB
+     * @return the open book
+     * @throws IOException if the file cannot be read or is not a whole number of entries
+     */
+    public static PolyglotBook open(Path file) throws IOException {
+        return open(file, PolyglotKeys.standard());
+    }
+
+    /**
+     * Maps a book file. The mapping outlives the channel, which is closed before returning.
+     *
+     * @param file the .bin book, at most 2 GB
+     * @param keys the Polyglot random numbers the book was written with
+     * @return the open book
+     * @throws IOException if the file cannot be read or is not a whole number of entries
+     */
+    public static PolyglotBook open(Path file, PolyglotKeys keys) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size % ENTRY_BYTES != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a Polyglot book: " + file);
+            }
+            return new PolyglotBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), (int) (size / ENTRY_BYTES), keys);
+        }
+    }
+
+    /**
+     * @return number of entries in the book
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the legal book move with the highest weight, or null if the position is not in the book
+     */
+    public ChessMove bestMove(ChessGame game) {
+        long key = keys.key(game);
+        ChessMove best = null;
+        int bestWeight = -1;
+        for(int i = firstEntry(key); i < count && key(i) == key; i++) {
+            ChessMove move = legalMove(game, i);
+            if(move != null && weight(i) > bestWeight) {
+                best = move;
+                bestWeight = weight(i);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Chooses among the legal book moves with chances in proportion to their weights
+     *
+     * @param game   position to look up
+     * @param random source of the choice
+     * @return the chosen move, or null if the position is not in the book or every weight is 0
+     */
+    public ChessMove pickMove(ChessGame game, RandomGenerator random) {
+        long key = keys.key(game);
+        int first = firstEntry(key);
+        long total = 0;
+        for(int i = first; i < count && key(i) == key; i++) {
+            if(legalMove(game, i) != null) {
+                total += weight(i);
+            }
+        }
+        if(total == 0) { return null; }
+
+        long pick = random.nextLong(total);
+        for(int i = first; i < count && key(i) == key; i++) {
+            ChessMove move = legalMove(game, i);
+            if(move == null) { continue; }
+            pick -= weight(i);
+            if(pick < 0) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    //Lower bound: the first entry whose key is not below the given one, comparing keys unsigned
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = count;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(Long.compareUnsigned(key(middle), key) < 0) {
+                low = middle + 1;
+            }else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long key(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    private int weight(int index) {
+        return Short.toUnsignedInt(entries.getShort(index * ENTRY_BYTES + 10));
+    }
+
+    //Decodes an entry's move, or returns null if it is not legal here (a key collision)
+    private ChessMove legalMove(ChessGame game, int index) {
+        int move = Short.toUnsignedInt(entries.getShort(index * ENTRY_BYTES + 8));
+        int toCol = (move & 7) + 1;
+        int toRow = ((move >>> 3) & 7) + 1;
+        int fromCol = ((move >>> 6) & 7) + 1;
+        int fromRow = ((move >>> 9) & 7) + 1;
+        ChessPiece.PieceType promotion = PROMOTIONS[Math.min((move >>> 12) & 7, 4)];
+
+        ChessPosition from = ChessPosition.of(fromRow, fromCol);
+        ChessPiece piece = game.getBoard().getPiece(from);
+        if(piece == null) { return null; }
+        //Polyglot writes castling as the king taking its own rook
+        if(piece.getPieceType() == ChessPiece.PieceType.KING && fromCol == 5 && toRow == fromRow
+                && (toCol == 8 || toCol == 1)) {
+            toCol = toCol == 8 ? 7 : 3;
+        }
+
+        ChessMove chessMove = new ChessMove(from, ChessPosition.of(toRow, toCol), promotion);
+        return game.validMoves(from).contains(chessMove) ? chessMove : null;
+    }
+}
@@ -0,0 +1,32 @@
+package chess.engine;
+
+/**
+ * When a search stops. A search ends at whichever limit it reaches first; 0 means no limit on
+ * nodes or time. The depth always applies, so a search with only a time budget still ends at
+ * MAX_DEPTH plies.
+ *
+ * @param depth  deepest iteration to run, in plies
+ * @param nodes  most nodes to visit
+ * @param millis most time to spend
+ */
+public record SearchLimits(int depth, long nodes, long millis) {
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if(depth < 1 || depth > MAX_DEPTH || nodes < 0 || millis < 0) {
+            throw new IllegalArgumentException("Invalid search limits");
+        }
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes, 0);
+    }
+
+    public static SearchLimits millis(long millis) {
+        return new SearchLimits(MAX_DEPTH, 0, millis);
+    }
+}
@@ -0,0 +1,28 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+/**
+ * Outcome of a search: the move to play and what was learned finding it
+ *
+ * @param bestMove     move to play, or null if the side to move has none
+ * @param score        centipawns for the side to move; mates score near Engine.MATE
+ * @param depth        deepest iteration that finished
+ * @param nodes        positions visited, quiescence included
+ * @param elapsedNanos time spent searching
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, long elapsedNanos) {
+    /**
+     * @return nodes visited per second
+     */
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return True if the score is a forced mate for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Engine.MATE - SearchLimits.MAX_DEPTH * 2;
+    }
+}
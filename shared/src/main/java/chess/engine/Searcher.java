@@ -0,0 +1,319 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+/**
+ * One thread's search: iterative deepening over a fail-soft alpha-beta with a check extension,
+ * then a quiescence search of captures and promotions at the leaves. Moves are tried hash move
+ * first, then captures by most valuable victim and least valuable attacker, then the two killer
+ * moves of the ply, then quiet moves by history score. Every buffer is allocated up front, so
+ * the search itself allocates nothing.
+ */
+final class Searcher {
+    static final int MAX_PLY = 128;
+    private static final int INFINITY = 32_000;
+
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 29;
+    private static final int KILLER = 1 << 28;
+    private static final int HISTORY_LIMIT = 1 << 20;
+    //MVV-LVA ranks by PieceType ordinal: king, queen, bishop, knight, rook, pawn
+    private static final int[] RANK = {6, 5, 3, 2, 4, 1};
+
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private final MoveList[] lists = new MoveList[MAX_PLY + 1];
+    private final int[][] scores = new int[MAX_PLY + 1][256];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    //indexed by color * 4096 + from * 64 + to
+    private final int[] history = new int[2 * 64 * 64];
+
+    private ChessGame game;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean stopped;
+    //set by another thread to end the search early
+    private volatile boolean aborted;
+    private int rootMove;
+
+    Searcher(Evaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.table = table;
+        for(int i = 0; i <= MAX_PLY; i++) {
+            lists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * @param startDepth first iteration to run; Lazy SMP helpers start one deeper than the main thread
+     */
+    SearchResult search(ChessGame game, SearchLimits limits, int startDepth) {
+        long start = System.nanoTime();
+        this.game = game;
+        nodes = 0;
+        stopped = false;
+        nodeLimit = limits.nodes() == 0 ? Long.MAX_VALUE : limits.nodes();
+        deadline = limits.millis() == 0 ? Long.MAX_VALUE : start + limits.millis() * 1_000_000;
+        for(int[] slots : killers) {
+            slots[0] = 0;
+            slots[1] = 0;
+        }
+
+        int bestMove = 0;
+        int bestScore = 0;
+        int completed = 0;
+        for(int depth = Math.min(startDepth, limits.depth()); depth <= limits.depth(); depth++) {
+            rootMove = 0;
+            int score = search(depth, 0, -INFINITY, INFINITY);
+            if(stopped) { //an unfinished iteration only counts if nothing else finished
+                if(bestMove == 0) {
+                    bestMove = rootMove;
+                    bestScore = score;
+                }
+                break;
+            }
+            bestMove = rootMove;
+            bestScore = score;
+            completed = depth;
+            if(Math.abs(score) >= Engine.MATE - MAX_PLY) { //deeper iterations find no shorter mate
+                break;
+            }
+        }
+        if(bestMove == 0) { //stopped before any root move was searched, fall back to a legal one
+            MoveList moves = lists[0];
+            moves.clear();
+            game.legalMoves(game.getTeamTurn(), moves);
+            if(moves.isEmpty()) {
+                bestScore = game.isInCheck(game.getTeamTurn()) ? -Engine.MATE : 0;
+            }else {
+                bestMove = moves.get(0);
+            }
+        }
+        this.game = null;
+        return new SearchResult(bestMove == 0 ? null : PackedMove.toChessMove(bestMove),
+                bestScore, completed, nodes, System.nanoTime() - start);
+    }
+
+    private int search(int depth, int ply, int alpha, int beta) {
+        if(shouldStop()) { return 0; }
+        nodes++;
+        if(ply > 0 && isDraw()) { return 0; }
+        if(ply >= MAX_PLY) { return evaluator.evaluate(game); }
+
+        ChessGame.TeamColor side = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(side);
+        if(inCheck) { //never stop the search in the middle of a check
+            depth++;
+        }
+        if(depth <= 0) { return quiesce(ply, alpha, beta); }
+
+        long key = game.positionKey();
+        long entry = table.probe(key);
+        int hashMove = 0;
+        if(entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if(ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if(bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = lists[ply];
+        moves.clear();
+        game.legalMoves(side, moves);
+        if(moves.isEmpty()) {
+            return inCheck ? -Engine.MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, hashMove, side);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, scores[ply], i);
+            int state = game.doMove(move);
+            int score = -search(depth - 1, ply + 1, -beta, -alpha);
+            game.undoMove(move, state);
+            if(stopped) { return 0; }
+
+            if(score > best) {
+                best = score;
+                bestMove = move;
+                if(ply == 0) {
+                    rootMove = move;
+                }
+                if(score > alpha) {
+                    alpha = score;
+                    if(alpha >= beta) {
+                        if(!PackedMove.isCapture(move) && !PackedMove.isPromotion(move)) {
+                            rememberQuietCutoff(move, ply, depth, side);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    //Searches captures and promotions until the position is quiet, or every evasion when in check
+    private int quiesce(int ply, int alpha, int beta) {
+        if(shouldStop()) { return 0; }
+        nodes++;
+        if(ply >= MAX_PLY) { return evaluator.evaluate(game); }
+
+        ChessGame.TeamColor side = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(side);
+        int best = -INFINITY;
+        if(!inCheck) { //the side to move may decline every capture
+            best = evaluator.evaluate(game);
+            if(best >= beta) { return best; }
+            if(best > alpha) { alpha = best; }
+        }
+
+        MoveList moves = lists[ply];
+        moves.clear();
+        game.legalMoves(side, moves);
+        if(moves.isEmpty()) {
+            return inCheck ? -Engine.MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, 0, side);
+
+        for(int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, scores[ply], i);
+            if(!inCheck && scores[ply][i] < CAPTURE) { //sorted, so the rest are quiet too
+                break;
+            }
+            int state = game.doMove(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            game.undoMove(move, state);
+            if(stopped) { return 0; }
+
+            if(score > best) {
+                best = score;
+                if(score > alpha) {
+                    alpha = score;
+                    if(alpha >= beta) { break; }
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean shouldStop() {
+        if(!stopped && (nodes >= nodeLimit || ((nodes & 1023) == 0 && (aborted || System.nanoTime() >= deadline)))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    //A position already seen on the way here counts as a draw, as does the fifty-move rule
+    private boolean isDraw() {
+        int clock = game.getHalfmoveClock();
+        return clock >= 100 || (clock >= 4 && game.repetitionCount() > 0);
+    }
+
+    private void scoreMoves(MoveList moves, int ply, int hashMove, ChessGame.TeamColor side) {
+        ChessBoard board = game.getBoard();
+        int[] out = scores[ply];
+        int historyBase = side.ordinal() << 12;
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int to = PackedMove.to(move);
+            if(move == hashMove) {
+                out[i] = HASH_MOVE;
+            }else if(PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+                int victim = 0;
+                if(PackedMove.flag(move) == PackedMove.EN_PASSANT) {
+                    victim = RANK[ChessPiece.PieceType.PAWN.ordinal()];
+                }else if(PackedMove.isCapture(move)) {
+                    victim = RANK[board.getPiece(to).getPieceType().ordinal()];
+                }
+                if(PackedMove.isPromotion(move)) {
+                    victim += RANK[PackedMove.promotionType(move).ordinal()];
+                }
+                int attacker = RANK[board.getPiece(PackedMove.from(move)).getPieceType().ordinal()];
+                out[i] = CAPTURE + victim * 16 - attacker;
+            }else if(move == killers[ply][0]) {
+                out[i] = KILLER;
+            }else if(move == killers[ply][1]) {
+                out[i] = KILLER - 1;
+            }else {
+                out[i] = history[historyBase | PackedMove.from(move) << 6 | to];
+            }
+        }
+    }
+
+    //Selection sort one step at a time: most nodes cut off after a move or two
+    private static int pickNext(MoveList moves, int[] scores, int index) {
+        int best = index;
+        for(int i = index + 1; i < moves.size(); i++) {
+            if(scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if(best != index) {
+            moves.swap(index, best);
+            int score = scores[index];
+            scores[index] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(index);
+    }
+
+    private void rememberQuietCutoff(int move, int ply, int depth, ChessGame.TeamColor side) {
+        if(killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = side.ordinal() << 12 | PackedMove.from(move) << 6 | PackedMove.to(move);
+        history[index] += depth * depth;
+        if(history[index] > HISTORY_LIMIT) { //keep history below the killer scores
+            for(int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Clears or sets the abort flag; cleared before a search starts, not by the search itself,
+     * so an abort sent before a helper thread gets going is not lost
+     */
+    void setAborted(boolean aborted) {
+        this.aborted = aborted;
+    }
+
+    //Forgets the move-ordering history; the table is the engine's to clear
+    void clear() {
+        for(int i = 0; i < history.length; i++) {
+            history[i] = 0;
+        }
+    }
+
+    //Mate scores are stored relative to the node, not the root, so they stay right when reached another way
+    private static int toTable(int score, int ply) {
+        if(score >= Engine.MATE - MAX_PLY) { return score + ply; }
+        if(score <= -Engine.MATE + MAX_PLY) { return score - ply; }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if(score >= Engine.MATE - MAX_PLY) { return score - ply; }
+        if(score <= -Engine.MATE + MAX_PLY) { return score + ply; }
+        return score;
+    }
+}
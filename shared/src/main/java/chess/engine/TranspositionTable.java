@@ -0,0 +1,161 @@
+package chess.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Remembers the best move, score and depth searched for positions by Zobrist key, so a
+ * position reached again, or searched again one iteration deeper, starts from what is known.
+ * <p>
+ * The table is one long[] sized in megabytes, with no per-entry objects. Each entry is two
+ * longs, the key XORed with the data and then the data, and four entries make a 64-byte
+ * bucket. Threads read and write without locks: a reader XORs the two words back together
+ * and only trusts the entry if that gives its key, so an entry torn by a racing write reads
+ * as a miss. A new entry takes the slot of its own key, else an empty one, else the one
+ * worth least, where shallow entries from earlier searches are worth least.
+ */
+public final class TranspositionTable {
+    static final int EXACT = 1;
+    static final int LOWER = 2; //score is at least the stored one (failed high)
+    static final int UPPER = 3; //score is at most the stored one (failed low)
+
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int ENTRY_BYTES = 16;
+    //opaque access keeps each long whole, which plain access to a long[] does not promise
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    //bucket b holds entries at 8b, 8b+2, 8b+4 and 8b+6, each followed by its data word
+    private final long[] table;
+    private final long bucketMask;
+    private volatile int age;
+
+    /**
+     * @param megabytes memory to use, rounded down to a power of two number of buckets,
+     *                  at most 16384 (the largest long[] Java allows)
+     */
+    public TranspositionTable(int megabytes) {
+        if(megabytes < 1) {
+            throw new IllegalArgumentException("Size must be at least 1 MB");
+        }
+        long buckets = Long.highestOneBit(Math.min(megabytes, 16_384) * (1L << 20) / (ENTRY_BYTES * BUCKET_ENTRIES));
+        if(buckets * BUCKET_ENTRIES * 2 > Integer.MAX_VALUE - 8) {
+            buckets >>= 1;
+        }
+        table = new long[(int) (buckets * BUCKET_ENTRIES * 2)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * @return bytes held by the table
+     */
+    public long sizeInBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * Empties the table, which is not safe while a search is running
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        age = 0;
+    }
+
+    /**
+     * Sampled from the first thousand buckets, like UCI's hashfull
+     *
+     * @return entries per thousand written by the current search
+     */
+    public int usagePermille() {
+        int samples = (int) Math.min(1000, bucketMask + 1);
+        int used = 0;
+        for(int i = 0; i < samples * BUCKET_ENTRIES * 2; i += 2) {
+            long data = (long) SLOTS.getOpaque(table, i + 1);
+            if(data != 0 && age(data) == age) {
+                used++;
+            }
+        }
+        return used * 1000 / (samples * BUCKET_ENTRIES);
+    }
+
+    /**
+     * Starts a new search generation, so entries left from earlier searches are replaced first
+     */
+    void newSearch() {
+        age = (age + 1) & 63;
+    }
+
+    /**
+     * @return the packed entry for the key, or 0 if none is stored
+     */
+    long probe(long key) {
+        int base = bucket(key);
+        for(int i = base; i < base + BUCKET_ENTRIES * 2; i += 2) {
+            long data = (long) SLOTS.getOpaque(table, i + 1);
+            if(data != 0 && ((long) SLOTS.getOpaque(table, i) ^ data) == key) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    void store(long key, int move, int score, int depth, int bound) {
+        int base = bucket(key);
+        int currentAge = age;
+        int slot = base;
+        int worst = Integer.MAX_VALUE;
+        for(int i = base; i < base + BUCKET_ENTRIES * 2; i += 2) {
+            long data = (long) SLOTS.getOpaque(table, i + 1);
+            if(data == 0) { //empty
+                slot = i;
+                break;
+            }
+            if(((long) SLOTS.getOpaque(table, i) ^ data) == key) { //same position, keep its move if we have none
+                if(move == 0) {
+                    move = move(data);
+                }
+                slot = i;
+                break;
+            }
+            //each search generation an entry is older costs it as much as four plies of depth
+            int worth = depth(data) - 4 * ((currentAge - age(data)) & 63);
+            if(worth < worst) {
+                worst = worth;
+                slot = i;
+            }
+        }
+        long data = pack(move, score, depth, bound, currentAge);
+        SLOTS.setOpaque(table, slot, key ^ data);
+        SLOTS.setOpaque(table, slot + 1, data);
+    }
+
+    private int bucket(long key) {
+        return (int) (key & bucketMask) * BUCKET_ENTRIES * 2;
+    }
+
+    //move in bits 0-15, score in 16-31, depth in 32-39, bound in 40-41 (never 0), age in 42-47
+    static long pack(int move, int score, int depth, int bound, int age) {
+        return (move & 0xFFFFL) | (score & 0xFFFFL) << 16 | (long) depth << 32
+                | (long) bound << 40 | (long) age << 42;
+    }
+
+    static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    static int score(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 40) & 3;
+    }
+
+    static int age(long entry) {
+        return (int) (entry >>> 42) & 63;
+    }
+}
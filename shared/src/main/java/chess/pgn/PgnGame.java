@@ -0,0 +1,21 @@
+package chess.pgn;
+
+import chess.ChessGame;
+
+import java.util.Map;
+
+/**
+ * One game of a PGN file: its tag pairs in file order and the game replayed to its last move,
+ * which carries the move history and the position it starts from
+ *
+ * @param tags tag names to values, such as Event, White and Result
+ * @param game the game after its last move
+ */
+public record PgnGame(Map<String, String> tags, ChessGame game) {
+    /**
+     * @return the Result tag: 1-0, 0-1, 1/2-1/2, or * for a game still going or unknown
+     */
+    public String result() {
+        return tags.getOrDefault("Result", "*");
+    }
+}
@@ -0,0 +1,359 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.LegalMoveCache;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Pull parser for PGN files: each call to next reads one more game, replaying its moves
+ * through makeMove, so memory stays constant however large the file is. Comments, variations
+ * and annotation glyphs are skipped.
+ * <p>
+ * readParallel splits a file at game boundaries, lines starting with an Event tag as PGN
+ * export format puts first, and parses the pieces on a fork/join pool.
+ */
+public final class PgnReader implements Closeable {
+    private static final String EVENT = "\n[Event ";
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private final StringBuilder token = new StringBuilder(32);
+    private final MoveList scratch = new MoveList();
+
+    /**
+     * @param in PGN text; closing the reader closes it
+     */
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Totals of a parallel read
+     *
+     * @param games    games handed to the consumer
+     * @param rejected games skipped for an illegal move or bad FEN
+     */
+    public record Totals(long games, long rejected) { }
+
+    /**
+     * Reads the next game. A game with an illegal move or a bad FEN tag is read to its end
+     * before the exception is thrown, so reading can go on with the game after it.
+     *
+     * @return the game, or null at the end of the input
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the game cannot be replayed
+     */
+    public PgnGame next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        ChessGame game = null;
+        String error = null;
+        boolean moves = false;
+        int c;
+        while((c = skipSpace()) >= 0) {
+            if(c == '[') {
+                if(moves) { break; } //the next game's tags, the result was left out
+                position++;
+                readTag(tags);
+            }else if(c == '{') {
+                skipPast('}');
+            }else if(c == ';' || c == '%') {
+                skipPast('\n');
+            }else if(c == '(') {
+                skipVariation();
+            }else {
+                readToken();
+                if(isResult(token)) {
+                    tags.putIfAbsent("Result", token.toString());
+                    break;
+                }
+                if(token.charAt(0) == '$') { continue; }
+                int san = skipMoveNumber(token);
+                if(san == token.length()) { continue; }
+
+                moves = true;
+                if(game == null && error == null) {
+                    try {
+                        game = start(tags);
+                    } catch (IllegalArgumentException ex) {
+                        error = ex.getMessage();
+                    }
+                }
+                if(error == null) {
+                    error = play(game, token.substring(san));
+                }
+            }
+        }
+
+        if(tags.isEmpty() && !moves) {
+            return null;
+        }
+        if(error != null) {
+            throw new IllegalArgumentException("Invalid PGN game " + tags.getOrDefault("Event", "?") + ": " + error);
+        }
+        return new PgnGame(tags, game != null ? game : start(tags));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Parses a file on a pool, handing every game to the consumer from whichever pool thread
+     * read it, in no particular order
+     *
+     * @param file     PGN file in UTF-8
+     * @param pool     pool to parse on
+     * @param consumer takes each game; called from several threads at once
+     * @return games read and games rejected
+     * @throws IOException if the file cannot be read
+     */
+    public static Totals readParallel(Path file, ForkJoinPool pool, Consumer<PgnGame> consumer) throws IOException {
+        return readParallel(file, pool, consumer, MIN_CHUNK_BYTES);
+    }
+
+    //Splits into up to four pieces per pool thread, none smaller than minChunkBytes
+    static Totals readParallel(Path file, ForkJoinPool pool, Consumer<PgnGame> consumer, long minChunkBytes) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = (int) Math.max(1, Math.min(size / minChunkBytes, pool.getParallelism() * 4L));
+            long[] starts = new long[chunks + 1];
+            for(int i = 1; i < chunks; i++) {
+                starts[i] = Math.max(starts[i - 1], nextGame(channel, size * i / chunks));
+            }
+            starts[chunks] = size;
+
+            List<ForkJoinTask<Totals>> tasks = new ArrayList<>(chunks);
+            for(int i = 0; i < chunks; i++) {
+                long start = starts[i];
+                long end = starts[i + 1];
+                tasks.add(pool.submit(() -> readRange(channel, start, end, consumer)));
+            }
+            long games = 0;
+            long rejected = 0;
+            for(ForkJoinTask<Totals> task : tasks) {
+                Totals totals = task.join();
+                games += totals.games();
+                rejected += totals.rejected();
+            }
+            return new Totals(games, rejected);
+        }
+    }
+
+    private static Totals readRange(FileChannel channel, long start, long end, Consumer<PgnGame> consumer) throws IOException {
+        long games = 0;
+        long rejected = 0;
+        Reader text = new InputStreamReader(new RangeInputStream(channel, start, end), StandardCharsets.UTF_8);
+        PgnReader reader = new PgnReader(text);
+        while(true) {
+            PgnGame game;
+            try {
+                game = reader.next();
+            } catch (IllegalArgumentException ex) {
+                rejected++;
+                continue;
+            }
+            if(game == null) {
+                return new Totals(games, rejected);
+            }
+            consumer.accept(game);
+            games++;
+        }
+    }
+
+    //Offset of the first line at or after from that starts with an Event tag, or the file size
+    private static long nextGame(FileChannel channel, long from) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(1 << 16);
+        int matched = 0;
+        for(long offset = Math.max(from - 1, 0); ; ) {
+            block.clear();
+            int read = channel.read(block, offset);
+            if(read <= 0) {
+                return channel.size();
+            }
+            for(int i = 0; i < read; i++) {
+                byte b = block.get(i);
+                matched = b == EVENT.charAt(matched) ? matched + 1 : b == '\n' ? 1 : 0;
+                if(matched == EVENT.length()) {
+                    return offset + i - EVENT.length() + 2; //just past the newline
+                }
+            }
+            offset += read;
+        }
+    }
+
+    private ChessGame start(Map<String, String> tags) {
+        String fen = tags.get("FEN");
+        ChessGame game = fen != null ? ChessGame.fromFen(fen) : new ChessGame();
+        //a private cache keeps parallel readers off the shared one
+        game.setMoveCache(new LegalMoveCache(64));
+        return game;
+    }
+
+    //Plays a SAN move, returning an error message instead of throwing so the game can be skipped
+    private String play(ChessGame game, String san) {
+        try {
+            game.makeMove(PackedMove.toChessMove(San.parse(game, san, scratch)));
+            return null;
+        } catch (IllegalArgumentException | InvalidMoveException ex) {
+            return ex.getMessage() + " at move " + game.getFullmoveNumber();
+        }
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException {
+        StringBuilder name = new StringBuilder();
+        int c;
+        while((c = read()) >= 0 && c != '"' && c != ']') {
+            if(!Character.isWhitespace(c)) {
+                name.append((char) c);
+            }
+        }
+        StringBuilder value = new StringBuilder();
+        if(c == '"') {
+            while((c = read()) >= 0 && c != '"') {
+                if(c == '\\') {
+                    c = read();
+                    if(c < 0) { break; }
+                }
+                value.append((char) c);
+            }
+            skipPast(']');
+        }
+        tags.put(name.toString(), value.toString());
+    }
+
+    private void readToken() throws IOException {
+        token.setLength(0);
+        int c;
+        while((c = peek()) >= 0 && !Character.isWhitespace(c) && "{}[]();".indexOf(c) < 0) {
+            token.append((char) c);
+            position++;
+        }
+        if(token.isEmpty()) { //a stray closing bracket
+            token.append((char) read());
+        }
+    }
+
+    //Index of the SAN after any move number and dots, such as 12. or 12... or a lone ...
+    private static int skipMoveNumber(StringBuilder token) {
+        int i = 0;
+        while(i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+        while(i < token.length() && token.charAt(i) == '.') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isResult(StringBuilder token) {
+        String text = token.toString();
+        return text.equals("1-0") || text.equals("0-1") || text.equals("1/2-1/2") || text.equals("*");
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 0;
+        int c;
+        while((c = read()) >= 0) {
+            if(c == '(') {
+                depth++;
+            }else if(c == ')' && --depth == 0) {
+                return;
+            }else if(c == '{') {
+                skipPast('}');
+            }else if(c == ';') {
+                skipPast('\n');
+            }
+        }
+    }
+
+    private void skipPast(char end) throws IOException {
+        int c;
+        do {
+            c = read();
+        } while(c >= 0 && c != end);
+    }
+
+    //Next character that is not whitespace, left unread, or -1 at the end
+    private int skipSpace() throws IOException {
+        int c;
+        while((c = peek()) >= 0 && Character.isWhitespace(c)) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if(position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if(limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if(c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * Bytes start to end of a file, read with positional reads so several can share a channel
+     */
+    private static final class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if(position >= end) { return -1; }
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+            if(read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.LegalMoveCache;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games in PGN export format: the seven standard tags first, with ? for unknown
+ * values, then any others, then the moves in SAN wrapped at 80 columns and the result.
+ * Games that did not start from the usual position get SetUp and FEN tags.
+ */
+public final class PgnWriter {
+    private static final String[] SEVEN_TAGS = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final int LINE_LENGTH = 79;
+
+    private final Writer out;
+    private final MoveList scratch = new MoveList();
+
+    /**
+     * @param out where games are written; the caller closes it
+     */
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * @param game a game and its tags
+     * @return the game as PGN text
+     */
+    public static String toPgn(PgnGame game) {
+        StringWriter text = new StringWriter();
+        try {
+            new PgnWriter(text).write(game);
+        } catch (IOException ex) { //a StringWriter does not throw
+            throw new UncheckedIOException(ex);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes a game's move history from the position it started at, followed by a blank line.
+     * A Result tag is filled in from the game's status when it has none.
+     *
+     * @param game a game and its tags
+     * @throws IOException           if the writer fails
+     * @throws IllegalStateException if the game's history does not lead to its position
+     */
+    public void write(PgnGame game) throws IOException {
+        ChessGame played = game.game();
+        String startFen = played.getHistoryStartFen();
+        ChessGame replay = ChessGame.fromFen(startFen);
+        replay.setMoveCache(new LegalMoveCache(64));
+
+        String result = game.tags().getOrDefault("Result", result(played));
+        for(String name : SEVEN_TAGS) {
+            String value = name.equals("Result") ? result : game.tags().get(name);
+            writeTag(name, value != null ? value : name.equals("Date") ? "????.??.??" : "?");
+        }
+        if(!startFen.equals(START)) {
+            writeTag("SetUp", "1");
+            writeTag("FEN", startFen);
+        }
+        for(Map.Entry<String, String> tag : game.tags().entrySet()) {
+            if(!isStandard(tag.getKey())) {
+                writeTag(tag.getKey(), tag.getValue());
+            }
+        }
+        out.write('\n');
+
+        StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+        List<ChessMove> moves = played.getMoveHistory();
+        for(int i = 0; i < moves.size(); i++) {
+            int move = PackedMove.of(moves.get(i), replay.getBoard());
+            if(replay.getTeamTurn() == ChessGame.TeamColor.WHITE) {
+                append(line, replay.getFullmoveNumber() + ".");
+            }else if(i == 0) {
+                append(line, replay.getFullmoveNumber() + "...");
+            }
+            append(line, San.format(replay, move, scratch));
+            try {
+                replay.makeMove(moves.get(i));
+            } catch (InvalidMoveException ex) {
+                throw new IllegalStateException("Move history does not replay: " + ex.getMessage());
+            }
+        }
+        if(replay.positionKey() != played.positionKey()) {
+            throw new IllegalStateException("Move history does not lead to the game's position");
+        }
+        append(line, result);
+        out.write(line.append('\n').append('\n').toString());
+    }
+
+    //Adds a token to the line, writing the line out first if the token would not fit
+    private void append(StringBuilder line, String token) throws IOException {
+        if(!line.isEmpty() && line.length() + 1 + token.length() > LINE_LENGTH) {
+            out.write(line.append('\n').toString());
+            line.setLength(0);
+        }
+        if(!line.isEmpty()) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        out.write("[" + name + " \"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]\n");
+    }
+
+    private static boolean isStandard(String name) {
+        for(String tag : SEVEN_TAGS) {
+            if(tag.equals(name)) {
+                return true;
+            }
+        }
+        return name.equals("SetUp") || name.equals("FEN");
+    }
+
+    private static String result(ChessGame game) {
+        return switch (game.getStatus()) {
+            case CHECKMATE -> game.getTeamTurn() == ChessGame.TeamColor.WHITE ? "0-1" : "1-0";
+            case STALEMATE, DRAW_BY_REPETITION, DRAW_BY_FIFTY_MOVES -> "1/2-1/2";
+            default -> "*";
+        };
+    }
+}
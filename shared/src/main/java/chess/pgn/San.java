@@ -0,0 +1,192 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+/**
+ * Standard Algebraic Notation, the move text of PGN: Nf3, exd5, O-O, e8=Q+ and so on.
+ * Pieces are named only as far as it takes to tell the legal moves apart.
+ */
+public final class San {
+    //SAN letters of the piece types, in PieceType order; pawns have none
+    private static final String LETTERS = "KQBNR";
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private San() { }
+
+    /**
+     * @param game position the move is made from, left as it was found
+     * @param move a legal move
+     * @return the move in SAN, with + or # when it checks or mates
+     */
+    public static String format(ChessGame game, ChessMove move) {
+        return format(game, PackedMove.of(move, game.getBoard()), new MoveList());
+    }
+
+    /**
+     * @param game position the move is made from
+     * @param san  move text, with or without check marks and annotations such as ! or ?
+     * @return the legal move the text names
+     * @throws IllegalArgumentException if no legal move, or more than one, fits the text
+     */
+    public static ChessMove parse(ChessGame game, String san) {
+        return PackedMove.toChessMove(parse(game, san, new MoveList()));
+    }
+
+    static String format(ChessGame game, int move, MoveList scratch) {
+        ChessBoard board = game.getBoard();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece.PieceType type = board.getPiece(from).getPieceType();
+        StringBuilder text = new StringBuilder(8);
+
+        int flag = PackedMove.flag(move);
+        if(flag == PackedMove.KING_CASTLE) {
+            text.append("O-O");
+        }else if(flag == PackedMove.QUEEN_CASTLE) {
+            text.append("O-O-O");
+        }else if(type == ChessPiece.PieceType.PAWN) {
+            if(PackedMove.isCapture(move)) {
+                text.append(file(from)).append('x');
+            }
+            text.append(file(to)).append(rank(to));
+            if(PackedMove.isPromotion(move)) {
+                text.append('=').append(LETTERS.charAt(PackedMove.promotionType(move).ordinal()));
+            }
+        }else {
+            text.append(LETTERS.charAt(type.ordinal()));
+            //name the file, else the rank, else both, when another piece of the type can reach the square
+            boolean ambiguous = false;
+            boolean sameFile = false;
+            boolean sameRank = false;
+            long others = board.pieceMask(game.getTeamTurn(), type) & ~(1L << from);
+            for(; others != 0; others &= others - 1) {
+                int other = Long.numberOfTrailingZeros(others);
+                if(reaches(game, other, to, scratch)) {
+                    ambiguous = true;
+                    sameFile |= (other & 7) == (from & 7);
+                    sameRank |= (other >>> 3) == (from >>> 3);
+                }
+            }
+            if(ambiguous && (!sameFile || sameRank)) { text.append(file(from)); }
+            if(ambiguous && sameFile) { text.append(rank(from)); }
+            if(PackedMove.isCapture(move)) { text.append('x'); }
+            text.append(file(to)).append(rank(to));
+        }
+
+        int state = game.doMove(move);
+        ChessGame.TeamColor opponent = game.getTeamTurn();
+        if(game.isInCheck(opponent)) {
+            text.append(game.hasAnyLegalMove(opponent) ? '+' : '#');
+        }
+        game.undoMove(move, state);
+        return text.toString();
+    }
+
+    static int parse(ChessGame game, String san, MoveList scratch) {
+        int end = san.length();
+        while(end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        String text = san.substring(0, end);
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor team = game.getTeamTurn();
+
+        if(text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+            int flag = text.length() == 3 ? PackedMove.KING_CASTLE : PackedMove.QUEEN_CASTLE;
+            scratch.clear();
+            if(board.kingSquare(team) >= 0) {
+                game.validMoves(board.kingSquare(team), scratch);
+            }
+            for(int i = 0; i < scratch.size(); i++) {
+                if(PackedMove.flag(scratch.get(i)) == flag) {
+                    return scratch.get(i);
+                }
+            }
+            throw invalidMove(san);
+        }
+
+        //promotion piece, with or without the =
+        ChessPiece.PieceType promotion = null;
+        if(end >= 3 && LETTERS.indexOf(text.charAt(end - 1)) > 0
+                && (text.charAt(end - 2) == '=' || Character.isDigit(text.charAt(end - 2)))) {
+            promotion = TYPES[LETTERS.indexOf(text.charAt(end - 1))];
+            end -= text.charAt(end - 2) == '=' ? 2 : 1;
+        }
+        if(end < 2) { throw invalidMove(san); }
+        int toFile = text.charAt(end - 2) - 'a';
+        int toRank = text.charAt(end - 1) - '1';
+        if(toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) { throw invalidMove(san); }
+        int to = toRank * 8 + toFile;
+
+        //piece letter, then whatever file and rank the move names its piece by
+        int start = 0;
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if(LETTERS.indexOf(text.charAt(0)) >= 0) {
+            type = TYPES[LETTERS.indexOf(text.charAt(0))];
+            start = 1;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for(int i = start; i < end - 2; i++) {
+            char c = text.charAt(i);
+            if(c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            }else if(c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            }else if(c != 'x' && c != '-') {
+                throw invalidMove(san);
+            }
+        }
+
+        //only the pieces of the named type and file or rank need their moves generated
+        int found = -1;
+        for(long pieces = board.pieceMask(team, type); pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            if((fromFile >= 0 && (from & 7) != fromFile) || (fromRank >= 0 && (from >>> 3) != fromRank)) {
+                continue;
+            }
+            scratch.clear();
+            game.validMoves(from, scratch);
+            for(int i = 0; i < scratch.size(); i++) {
+                int move = scratch.get(i);
+                if(PackedMove.to(move) != to || PackedMove.promotionType(move) != promotion || PackedMove.isCastle(move)) {
+                    continue;
+                }
+                if(found >= 0) {
+                    throw new IllegalArgumentException("Ambiguous move: " + san);
+                }
+                found = move;
+            }
+        }
+        if(found < 0) { throw invalidMove(san); }
+        return found;
+    }
+
+    private static boolean reaches(ChessGame game, int from, int to, MoveList scratch) {
+        scratch.clear();
+        game.validMoves(from, scratch);
+        for(int i = 0; i < scratch.size(); i++) {
+            if(PackedMove.to(scratch.get(i)) == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static char file(int square) {
+        return (char) ('a' + (square & 7));
+    }
+
+    private static char rank(int square) {
+        return (char) ('1' + (square >>> 3));
+    }
+
+    private static IllegalArgumentException invalidMove(String san) {
+        return new IllegalArgumentException("Invalid move: " + san);
+    }
+}
@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardSnapshotTest {
+    @Test
+    void snapshotDoesNotChangeWithTheGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        BoardSnapshot start = game.getSnapshot();
+        assertSame(start, game.getSnapshot());
+
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        BoardSnapshot afterMove = game.getSnapshot();
+
+        assertNotSame(start, afterMove);
+        assertEquals(new ChessGame().toFen(), start.toFen());
+        assertEquals(ChessGame.TeamColor.WHITE, start.getTeamTurn());
+        assertNotNull(start.getPiece(ChessPosition.of(2, 5)));
+        assertNull(afterMove.getPiece(ChessPosition.of(2, 5)));
+        assertEquals(game.positionKey(), afterMove.positionKey());
+        assertEquals(game.toFen(), afterMove.toFen());
+    }
+
+    @Test
+    void toGameBuildsAnIndependentCopy() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        game.setGameOver(true);
+
+        ChessGame copy = game.getSnapshot().toGame();
+        assertEquals(game, copy);
+        assertEquals(game.toFen(), copy.toFen());
+        assertTrue(copy.getGameOver());
+
+        copy.getBoard().addPiece(ChessPosition.of(4, 5), null);
+        assertNotNull(game.getBoard().getPiece(ChessPosition.of(4, 5)));
+    }
+
+    @Test
+    void toGameKeepsARepetitionDraw() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for(int i = 0; i < 2; i++) {
+            game.makeMove(new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null)); //Nf3
+            game.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null)); //Nf6
+            game.makeMove(new ChessMove(ChessPosition.of(3, 6), ChessPosition.of(1, 7), null)); //Ng1
+            game.makeMove(new ChessMove(ChessPosition.of(6, 6), ChessPosition.of(8, 7), null)); //Ng8
+        }
+        BoardSnapshot snapshot = game.getSnapshot();
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, snapshot.getStatus());
+
+        ChessGame copy = snapshot.toGame();
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, copy.getStatus());
+        assertTrue(copy.getGameOver());
+        assertEquals(2, copy.repetitionCount());
+        assertSame(snapshot, copy.getSnapshot());
+    }
+}
@@ -0,0 +1,156 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStatusTest {
+    @Test
+    void statusFollowsEachMove() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+
+        play(game, 2, 6, 3, 6); //f3
+        play(game, 7, 5, 5, 5); //e5
+        play(game, 2, 7, 4, 7); //g4
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+        play(game, 8, 4, 4, 8); //Qh4#
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.getStatus());
+        assertTrue(game.getGameOver());
+    }
+
+    @Test
+    void threefoldRepetitionIsADraw() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for(int i = 0; i < 2; i++) {
+            assertFalse(game.getGameOver());
+            assertEquals(i, game.repetitionCount());
+            play(game, 1, 7, 3, 6); //Nf3
+            play(game, 8, 7, 6, 6); //Nf6
+            play(game, 3, 6, 1, 7); //Ng1
+            play(game, 6, 6, 8, 7); //Ng8
+        }
+        assertEquals(2, game.repetitionCount());
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, game.getStatus());
+        assertTrue(game.getGameOver());
+    }
+
+    @Test
+    void promotionToKingOrPawnIsRejected() {
+        ChessGame game = ChessGame.fromFen("8/4P3/8/8/8/8/k7/4K3 w - - 0 1");
+        ChessPosition start = ChessPosition.of(7, 5);
+        ChessPosition end = ChessPosition.of(8, 5);
+        assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(new ChessMove(start, end, ChessPiece.PieceType.KING)));
+        assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(new ChessMove(start, end, ChessPiece.PieceType.PAWN)));
+        assertThrows(IllegalArgumentException.class, () -> PackedMove.promotionFlag(ChessPiece.PieceType.KING));
+    }
+
+    @Test
+    void irreversibleMoveClearsRepetitions() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, 1, 7, 3, 6);
+        play(game, 8, 7, 6, 6);
+        play(game, 3, 6, 1, 7);
+        play(game, 6, 6, 8, 7);
+        assertEquals(1, game.repetitionCount());
+        play(game, 2, 5, 3, 5); //e3
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(0, game.repetitionCount());
+    }
+
+    @Test
+    void repetitionsSurviveJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, 1, 7, 3, 6);
+        play(game, 8, 7, 6, 6);
+        play(game, 3, 6, 1, 7);
+        play(game, 6, 6, 8, 7);
+        play(game, 1, 7, 3, 6);
+        play(game, 8, 7, 6, 6);
+        play(game, 3, 6, 1, 7);
+
+        Gson gson = new Gson();
+        String json = gson.toJson(game);
+        assertFalse(json.contains("keyHistory"));
+        ChessGame loaded = gson.fromJson(json, ChessGame.class);
+        play(loaded, 6, 6, 8, 7);
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, loaded.getStatus());
+    }
+
+    @Test
+    void deepSearchLeavesRepetitionsIntact() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, 1, 7, 3, 6);
+        play(game, 8, 7, 6, 6);
+        play(game, 3, 6, 1, 7);
+        play(game, 6, 6, 8, 7);
+        play(game, 1, 7, 3, 6);
+        play(game, 8, 7, 6, 6);
+        play(game, 3, 6, 1, 7);
+        assertEquals(1, game.repetitionCount());
+
+        //as deep as the searcher goes, wrapping the key ring over the game's own plies
+        ChessMove[] shuffle = {
+                new ChessMove(ChessPosition.of(8, 2), ChessPosition.of(6, 3), null),
+                new ChessMove(ChessPosition.of(1, 2), ChessPosition.of(3, 3), null),
+                new ChessMove(ChessPosition.of(6, 3), ChessPosition.of(8, 2), null),
+                new ChessMove(ChessPosition.of(3, 3), ChessPosition.of(1, 2), null)};
+        MoveUndo[] undos = new MoveUndo[126];
+        for(int i = 0; i < undos.length; i++) {
+            undos[i] = game.doMove(shuffle[i % 4]);
+        }
+        for(int i = undos.length - 1; i >= 0; i--) {
+            game.undoMove(undos[i]);
+        }
+        assertEquals(1, game.repetitionCount());
+        play(game, 6, 6, 8, 7);
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, game.getStatus());
+    }
+
+    @Test
+    void fiftyMoveRuleIsADraw() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("8/8/8/8/8/3k4/8/K7 w - - 99 80");
+        assertFalse(game.getGameOver());
+        play(game, 1, 1, 2, 1);
+        assertEquals(100, game.getHalfmoveClock());
+        assertEquals(ChessGame.GameStatus.DRAW_BY_FIFTY_MOVES, game.getStatus());
+        assertTrue(game.getGameOver());
+    }
+
+    @Test
+    void checkAndStalemate() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessBoard board = new ChessBoard();
+        board.addPiece(ChessPosition.of(8, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(6, 2), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(5, 3), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        game.setBoard(board);
+
+        play(game, 5, 3, 6, 3); //Qc6+
+        assertEquals(ChessGame.GameStatus.CHECK, game.getStatus());
+        play(game, 8, 1, 8, 2);
+        play(game, 6, 3, 7, 4);
+        play(game, 8, 2, 8, 1);
+        play(game, 7, 4, 7, 3); //Qc7, the black king has no square
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.getStatus());
+    }
+
+    @Test
+    void statusIsSerialized() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, 2, 6, 3, 6);
+        play(game, 7, 5, 5, 5);
+        play(game, 2, 7, 4, 7);
+        play(game, 8, 4, 4, 8);
+
+        ChessGame copy = new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+        assertEquals(ChessGame.GameStatus.CHECKMATE, copy.getStatus());
+    }
+
+    private static void play(ChessGame game, int fromRow, int fromCol, int toRow, int toCol) throws InvalidMoveException {
+        game.makeMove(new ChessMove(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol), null));
+    }
+}
@@ -0,0 +1,77 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalMoveCacheTest {
+    @Test
+    void repeatedQueriesHitTheCache() {
+        ChessGame game = new ChessGame();
+        LegalMoveCache cache = new LegalMoveCache(16);
+        game.setMoveCache(cache);
+
+        var first = game.validMoves(ChessPosition.of(2, 5));
+        assertEquals(1, cache.getMisses());
+        var second = game.validMoves(ChessPosition.of(1, 7));
+        assertFalse(game.isInStalemate(ChessGame.TeamColor.WHITE));
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, first.size());
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    void movesFollowThePosition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.setMoveCache(new LegalMoveCache(16));
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+
+        //white's moves are keyed apart from black's, so the pawn's new square is seen
+        assertEquals(1, game.validMoves(ChessPosition.of(4, 5)).size());
+        assertEquals(2, game.validMoves(ChessPosition.of(7, 5)).size());
+        assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(new ChessMove(ChessPosition.of(4, 5), ChessPosition.of(5, 5), null)));
+    }
+
+    @Test
+    void offTurnMovesDoNotStandInForAnotherPosition() throws InvalidMoveException {
+        LegalMoveCache cache = new LegalMoveCache(16);
+        //black just played e5, and black's moves are asked for while white is to move
+        ChessGame afterBlackPush = ChessGame.fromFen("4k3/8/8/4p3/3pP3/8/8/4K3 w - e6 0 2");
+        afterBlackPush.setMoveCache(cache);
+        assertEquals(1, afterBlackPush.validMoves(ChessPosition.of(4, 4)).size());
+
+        //same pieces with white having just played e4, where d4 can take en passant
+        ChessGame afterWhitePush = ChessGame.fromFen("4k3/8/8/4p3/3pP3/8/8/4K3 b - e3 0 1");
+        afterWhitePush.setMoveCache(cache);
+        assertEquals(2, afterWhitePush.validMoves(ChessPosition.of(4, 4)).size());
+        afterWhitePush.makeMove(new ChessMove(ChessPosition.of(4, 4), ChessPosition.of(3, 5), null));
+    }
+
+    @Test
+    void entryFromAnotherBoardIsAMiss() {
+        LegalMoveCache cache = new LegalMoveCache(16);
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        cache.put(7, board, new int[]{1});
+        assertNotNull(cache.get(7, board));
+        assertNull(cache.get(7, new ChessBoard()));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void leastRecentlyUsedPositionIsEvicted() {
+        LegalMoveCache cache = new LegalMoveCache(2);
+        ChessBoard board = new ChessBoard();
+        cache.put(1, board, new int[0]);
+        cache.put(2, board, new int[0]);
+        cache.get(1, board);
+        cache.put(3, board, new int[0]);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1, board));
+        assertNull(cache.get(2, board));
+        assertNotNull(cache.get(3, board));
+    }
+}
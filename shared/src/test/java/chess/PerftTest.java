@@ -0,0 +1,117 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Perft counts for the standard test positions (chessprogramming.org "Perft Results").
+ * Depths are kept small enough for the normal test run.
+ */
+class PerftTest {
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    void startPosition() {
+        assertCounts(START, 20, 400, 8902, 197281, 4865609);
+        //nodes, captures, e.p., castles, promotions, checks, checkmates
+        assertStats(START, 4, 197281, 1576, 0, 0, 0, 469, 8);
+    }
+
+    @Test
+    void kiwipete() {
+        assertCounts(KIWIPETE, 48, 2039, 97862, 4085603);
+        assertStats(KIWIPETE, 3, 97862, 17102, 45, 3162, 0, 993, 1);
+    }
+
+    @Test
+    void position3() {
+        assertCounts(POSITION_3, 14, 191, 2812, 43238, 674624);
+        assertStats(POSITION_3, 4, 43238, 3348, 123, 0, 0, 1680, 17);
+    }
+
+    @Test
+    void position4() {
+        assertCounts(POSITION_4, 6, 264, 9467, 422333);
+        assertStats(POSITION_4, 3, 9467, 1021, 4, 0, 120, 38, 22);
+    }
+
+    @Test
+    void position5() {
+        assertCounts(POSITION_5, 44, 1486, 62379, 2103487);
+    }
+
+    @Test
+    void position6() {
+        assertCounts(POSITION_6, 46, 2079, 89890, 3894594);
+    }
+
+    @Test
+    void perftLeavesGameUnchanged() {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        long key = game.positionKey();
+        ChessBoard before = game.copyBoard(game.getBoard());
+
+        Perft.count(game, 3);
+
+        assertEquals(key, game.positionKey());
+        assertEquals(before, game.getBoard());
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        assertEquals(KIWIPETE, game.toFen());
+    }
+
+    @Test
+    void parallelDivide() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Map<String, Long> divide = Perft.divide(ChessGame.fromFen(START), 3, pool, new PerftHashTable(1));
+        assertEquals(20, divide.size());
+        assertEquals(600, divide.get("e2e4"));
+        assertEquals(8902, divide.values().stream().mapToLong(Long::longValue).sum());
+
+        //hashed and unhashed, the counts match the single-threaded ones
+        assertEquals(4085603, Perft.count(ChessGame.fromFen(KIWIPETE), 4, pool, new PerftHashTable(4)));
+        assertEquals(2103487, Perft.count(ChessGame.fromFen(POSITION_5), 4, pool, null));
+        assertEquals(674624, Perft.count(ChessGame.fromFen(POSITION_3), 5, pool, new PerftHashTable(1)));
+        pool.shutdown();
+    }
+
+    @Test
+    void perftHashKeepsDepthsApart() {
+        PerftHashTable hash = new PerftHashTable(1);
+        hash.store(99, 3, 8902);
+        hash.store(99, 2, 400);
+        assertEquals(8902, hash.probe(99, 3));
+        assertEquals(400, hash.probe(99, 2));
+        assertEquals(-1, hash.probe(99, 4));
+        assertEquals(-1, hash.probe(100, 3));
+        hash.clear();
+        assertEquals(-1, hash.probe(99, 3));
+    }
+
+    private static void assertCounts(String position, long... expected) {
+        ChessGame game = ChessGame.fromFen(position);
+        for(int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], Perft.count(game, depth), "perft(" + depth + ") of " + position);
+        }
+    }
+
+    private static void assertStats(String position, int depth, long nodes, long captures, long enPassants,
+                                    long castles, long promotions, long checks, long checkmates) {
+        Perft.Stats stats = Perft.stats(ChessGame.fromFen(position), depth);
+        assertEquals(nodes, stats.nodes, "nodes");
+        assertEquals(captures, stats.captures, "captures");
+        assertEquals(enPassants, stats.enPassants, "en passant");
+        assertEquals(castles, stats.castles, "castles");
+        assertEquals(promotions, stats.promotions, "promotions");
+        assertEquals(checks, stats.checks, "checks");
+        assertEquals(checkmates, stats.checkmates, "checkmates");
+    }
+}
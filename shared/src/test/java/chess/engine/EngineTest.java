@@ -0,0 +1,94 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineTest {
+    @Test
+    void findsMateInOne() {
+        SearchResult result = new Engine().search(ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), SearchLimits.depth(4));
+        assertEquals(new ChessMove(ChessPosition.of(1, 1), ChessPosition.of(8, 1), null), result.bestMove());
+        assertTrue(result.isMate());
+        assertEquals(Engine.MATE - 1, result.score());
+    }
+
+    @Test
+    void findsMateInTwo() {
+        //1. Kf7 Kh7 2. Rh1#
+        ChessGame game = ChessGame.fromFen("7k/8/5K2/8/8/8/8/6R1 w - - 0 1");
+        SearchResult result = new Engine().search(game, SearchLimits.depth(5));
+        assertTrue(result.isMate());
+        assertEquals(Engine.MATE - 3, result.score());
+        assertEquals(new ChessMove(ChessPosition.of(6, 6), ChessPosition.of(7, 6), null), result.bestMove());
+    }
+
+    @Test
+    void takesAHangingQueen() {
+        SearchResult result = new Engine().search(ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"), SearchLimits.depth(3));
+        assertEquals(new ChessMove(ChessPosition.of(2, 4), ChessPosition.of(5, 4), null), result.bestMove());
+    }
+
+    @Test
+    void leavesTheGameAsItWasFound() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        ChessGame game = ChessGame.fromFen(fen);
+        long key = game.positionKey();
+        new Engine().search(game, SearchLimits.depth(4));
+        assertEquals(fen, game.toFen());
+        assertEquals(key, game.positionKey());
+    }
+
+    @Test
+    void respectsTheNodeBudget() {
+        SearchResult result = new Engine().search(new ChessGame(), SearchLimits.nodes(20_000));
+        assertNotNull(result.bestMove());
+        assertTrue(result.nodes() <= 20_000, "nodes " + result.nodes());
+        assertTrue(result.depth() >= 1);
+    }
+
+    @Test
+    void respectsTheTimeBudget() {
+        long start = System.nanoTime();
+        SearchResult result = new Engine().search(new ChessGame(), SearchLimits.millis(200));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertNotNull(result.bestMove());
+        assertTrue(elapsedMillis < 1_000, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void noMoveWhenMated() {
+        ChessGame game = ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        SearchResult result = new Engine().search(game, SearchLimits.depth(3));
+        assertNull(result.bestMove());
+        assertEquals(-Engine.MATE, result.score());
+    }
+
+    @Test
+    void parallelSearchFindsTheSameMate() {
+        Engine engine = new Engine(new MaterialEvaluator(), new TranspositionTable(4), 4);
+        ChessGame game = ChessGame.fromFen("7k/8/5K2/8/8/8/8/6R1 w - - 0 1");
+        SearchResult result = engine.search(game, SearchLimits.depth(5));
+        assertEquals(Engine.MATE - 3, result.score());
+        assertEquals(new ChessMove(ChessPosition.of(6, 6), ChessPosition.of(7, 6), null), result.bestMove());
+        assertEquals("7k/8/5K2/8/8/8/8/6R1 w - - 0 1", game.toFen());
+    }
+
+    @Test
+    void parallelSearchStopsOnTime() {
+        Engine engine = new Engine(new MaterialEvaluator(), new TranspositionTable(4), 4);
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        ChessGame game = ChessGame.fromFen(fen);
+        long start = System.nanoTime();
+        SearchResult result = engine.search(game, SearchLimits.millis(300));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertNotNull(result.bestMove());
+        assertTrue(game.validMoves(result.bestMove().getStartPosition()).contains(result.bestMove()));
+        assertTrue(elapsedMillis < 1_500, "took " + elapsedMillis + " ms");
+        assertEquals(fen, game.toFen());
+    }
+}
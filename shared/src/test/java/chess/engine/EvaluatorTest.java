@@ -0,0 +1,81 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+    @Test
+    void incrementalScoresMatchARebuiltBoard() throws InvalidMoveException {
+        SplittableRandom random = new SplittableRandom(22);
+        for(int game = 0; game < 20; game++) {
+            ChessGame played = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            for(int ply = 0; ply < 80 && !played.getGameOver(); ply++) {
+                List<ChessMove> moves = new ArrayList<>(played.legalMoves(played.getTeamTurn()));
+                played.makeMove(moves.get(random.nextInt(moves.size())));
+
+                ChessBoard board = played.getBoard();
+                ChessBoard rebuilt = ChessGame.fromFen(played.toFen()).getBoard();
+                assertEquals(rebuilt.midgameScore(), board.midgameScore());
+                assertEquals(rebuilt.endgameScore(), board.endgameScore());
+                assertEquals(rebuilt.phase(), board.phase());
+                assertEquals(rebuilt.pawnKey(), board.pawnKey());
+            }
+        }
+    }
+
+    @Test
+    void mirroredPositionsScoreAlike() {
+        Evaluator evaluator = new PawnStructureEvaluator();
+        assertEquals(0, evaluator.evaluate(new ChessGame()));
+        assertEquals(24, new ChessGame().getBoard().phase());
+        assertEquals(evaluator.evaluate(ChessGame.fromFen("4k3/1p6/8/3P4/8/8/5PP1/2R1K3 w - - 0 1")),
+                evaluator.evaluate(ChessGame.fromFen("2r1k3/5pp1/8/8/3p4/8/1P6/4K3 b - - 0 1")));
+    }
+
+    @Test
+    void endgamesScoreTheEndgameTables() {
+        ChessBoard board = ChessGame.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1").getBoard();
+        assertEquals(0, board.phase());
+        assertEquals(board.endgameScore(), new MaterialEvaluator().evaluate(ChessGame.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1")));
+    }
+
+    @Test
+    void pawnStructureTerms() {
+        long passed = PawnStructureEvaluator.scorePawns(bit(6, 5), bit(7, 1));
+        assertTrue(PawnHashTable.endgame(passed) > 0);
+        long blocked = PawnStructureEvaluator.scorePawns(bit(4, 5) | bit(3, 4), bit(6, 4) | bit(6, 3));
+        long doubled = PawnStructureEvaluator.scorePawns(bit(4, 5) | bit(3, 5), bit(6, 4) | bit(6, 3));
+        assertTrue(PawnHashTable.midgame(doubled) < PawnHashTable.midgame(blocked));
+        assertEquals(0, PawnStructureEvaluator.scorePawns(0, 0) & 0xFFFF_FFFFL);
+    }
+
+    @Test
+    void pawnHashRemembersStructures() {
+        ChessGame game = ChessGame.fromFen("4k3/1p6/8/3P4/8/8/5PP1/4K3 w - - 0 1");
+        PawnHashTable table = new PawnHashTable(1 << 10);
+        long pawnKey = game.getBoard().pawnKey();
+        assertEquals(0, table.probe(pawnKey));
+        long scores = PawnStructureEvaluator.scorePawns(game.getBoard().pieceMask(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                game.getBoard().pieceMask(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        table.store(pawnKey, scores);
+        assertEquals(scores, table.probe(pawnKey));
+        assertEquals(0, table.probe(pawnKey ^ (1L << 40)));
+        //moving the king leaves the pawn key alone
+        assertEquals(pawnKey, ChessGame.fromFen("4k3/1p6/8/3P4/8/8/5PP1/3K4 w - - 0 1").getBoard().pawnKey());
+    }
+
+    //Square bit for 1-based row and column, as in ChessPosition
+    private static long bit(int row, int col) {
+        return 1L << ChessBoard.squareIndex(row, col);
+    }
+}
@@ -0,0 +1,125 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolyglotBookTest {
+    private static final String CASTLING = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keysMatchTheFormatsExamples() throws InvalidMoveException {
+        PolyglotKeys keys = PolyglotKeys.standard();
+        ChessGame game = new ChessGame();
+        assertEquals(0x463B96181691FC9CL, keys.key(game));
+        //no black pawn can take on e3, so the en passant file is left out of the key
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals(0x823C9B50FD114196L, keys.key(game));
+        game.makeMove(move(7, 4, 5, 4));
+        assertEquals(0x0756B94461C50FB0L, keys.key(game));
+        game.makeMove(move(4, 5, 5, 5));
+        assertEquals(0x662FAFB965DB29D4L, keys.key(game));
+        //the e5 pawn can take on f6
+        game.makeMove(move(7, 6, 5, 6));
+        assertEquals(0x22A48B5A8E47FF78L, keys.key(game));
+        game.makeMove(move(1, 5, 2, 5));
+        assertEquals(0x652A607CA3F242C1L, keys.key(game));
+        game.makeMove(move(8, 5, 7, 6));
+        assertEquals(0x00FDD303C946BDD9L, keys.key(game));
+
+        game = new ChessGame();
+        for(ChessMove next : new ChessMove[]{move(2, 1, 4, 1), move(7, 2, 5, 2), move(2, 8, 4, 8), move(5, 2, 4, 2), move(2, 3, 4, 3)}) {
+            game.makeMove(next);
+        }
+        assertEquals(0x3C8123EA7B067637L, keys.key(game));
+        game.makeMove(move(4, 2, 3, 3));
+        game.makeMove(move(1, 1, 3, 1));
+        assertEquals(0x5C3F9B829B279560L, keys.key(game));
+    }
+
+    @Test
+    void booksServeWeightedMoves() throws IOException {
+        PolyglotKeys keys = PolyglotKeys.standard();
+        long start = keys.key(new ChessGame());
+        PolyglotBook book = PolyglotBook.open(writeBook(
+                entry(start, encode(2, 5, 4, 5), 10), //e4
+                entry(start, encode(2, 4, 4, 4), 30), //d4
+                entry(start, encode(1, 1, 5, 1), 500), //not legal, as if another position shared the key
+                entry(keys.key(ChessGame.fromFen(CASTLING)), encode(1, 5, 1, 8), 1)));
+        assertEquals(4, book.size());
+
+        assertEquals(move(2, 4, 4, 4), book.bestMove(new ChessGame()));
+        int d4 = 0;
+        SplittableRandom random = new SplittableRandom(7);
+        for(int i = 0; i < 4000; i++) {
+            ChessMove picked = book.pickMove(new ChessGame(), random);
+            assertTrue(picked.equals(move(2, 4, 4, 4)) || picked.equals(move(2, 5, 4, 5)));
+            if(picked.equals(move(2, 4, 4, 4))) { d4++; }
+        }
+        assertTrue(d4 > 2700 && d4 < 3300, "d4 picked " + d4 + " times");
+
+        //Polyglot castles as king takes rook
+        assertEquals(move(1, 5, 1, 7), book.bestMove(ChessGame.fromFen(CASTLING)));
+        assertNull(book.bestMove(ChessGame.fromFen("8/8/8/8/8/3k4/8/K7 w - - 0 1")));
+    }
+
+    @Test
+    void engineOpensFromTheBook() throws IOException {
+        Engine engine = new Engine();
+        engine.setBook(PolyglotBook.open(writeBook(entry(0x463B96181691FC9CL, encode(1, 7, 3, 6), 1))));
+
+        SearchResult result = engine.search(new ChessGame(), SearchLimits.depth(4));
+        assertEquals(move(1, 7, 3, 6), result.bestMove());
+        assertEquals(0, result.nodes());
+        assertTrue(engine.search(ChessGame.fromFen(CASTLING), SearchLimits.depth(2)).nodes() > 0);
+    }
+
+    @Test
+    void badFilesAreRejected() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new PolyglotKeys(new long[780]));
+
+        Path book = directory.resolve("torn.bin");
+        Files.write(book, new byte[24]);
+        assertThrows(IOException.class, () -> PolyglotBook.open(book));
+    }
+
+    private Path writeBook(long[]... entries) throws IOException {
+        long[][] sorted = entries.clone();
+        Arrays.sort(sorted, Comparator.comparing((long[] entry) -> entry[0], Long::compareUnsigned));
+        ByteBuffer bytes = ByteBuffer.allocate(sorted.length * 16);
+        for(long[] entry : sorted) {
+            bytes.putLong(entry[0]).putShort((short) entry[1]).putShort((short) entry[2]).putInt(0);
+        }
+        Path file = directory.resolve("book.bin");
+        Files.write(file, bytes.array());
+        return file;
+    }
+
+    private static long[] entry(long key, int move, int weight) {
+        return new long[]{key, move, weight};
+    }
+
+    private static int encode(int fromRow, int fromCol, int toRow, int toCol) {
+        return (fromRow - 1) << 9 | (fromCol - 1) << 6 | (toRow - 1) << 3 | (toCol - 1);
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol), null);
+    }
+}
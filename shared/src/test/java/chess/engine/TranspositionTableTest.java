@@ -0,0 +1,97 @@
+package chess.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+    @Test
+    void storedEntriesReadBack() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(1 << 20, table.sizeInBytes());
+        table.store(0x1234_5678_9ABC_DEF0L, 0x0ABC, -2500, 7, TranspositionTable.LOWER);
+
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertEquals(0x0ABC, TranspositionTable.move(entry));
+        assertEquals(-2500, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(0, table.probe(0x1234_5678_9ABC_DEF1L));
+    }
+
+    @Test
+    void sameKeyKeepsItsMove() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(42, 0x0123, 10, 3, TranspositionTable.EXACT);
+        table.store(42, 0, 5, 4, TranspositionTable.UPPER);
+        assertEquals(0x0123, TranspositionTable.move(table.probe(42)));
+        assertEquals(4, TranspositionTable.depth(table.probe(42)));
+    }
+
+    @Test
+    void shallowAndOldEntriesAreReplacedFirst() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.sizeInBytes() / 64;
+        //five keys that share a bucket of four
+        for(int i = 0; i < 4; i++) {
+            table.store(i * buckets, 1, 0, i == 2 ? 1 : 10, TranspositionTable.EXACT);
+        }
+        table.store(4 * buckets, 1, 0, 10, TranspositionTable.EXACT);
+        assertEquals(0, table.probe(2 * buckets));
+        assertNotEquals(0, table.probe(4 * buckets));
+
+        table.newSearch();
+        table.newSearch();
+        table.store(5 * buckets, 1, 0, 5, TranspositionTable.EXACT); //deep but two searches old loses
+        assertNotEquals(0, table.probe(5 * buckets));
+        assertEquals(1, oldKeysMissing(table, buckets));
+
+        table.store(6 * buckets, 1, 0, 5, TranspositionTable.EXACT); //as deep but current, so it survives
+        assertNotEquals(0, table.probe(5 * buckets));
+        assertNotEquals(0, table.probe(6 * buckets));
+        assertEquals(2, oldKeysMissing(table, buckets));
+    }
+
+    //how many of the depth 10 keys from the first search are gone
+    private static int oldKeysMissing(TranspositionTable table, long buckets) {
+        int missing = 0;
+        for(long i : new long[] {0, 1, 3, 4}) {
+            if(table.probe(i * buckets) == 0) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    @Test
+    void concurrentWritersNeverProduceMismatchedEntries() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.sizeInBytes() / 64;
+        AtomicInteger corrupt = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for(int i = 0; i < 500_000; i++) {
+                    //few buckets, so threads keep overwriting each other
+                    long key = random.nextInt(64) * buckets + random.nextInt(16);
+                    int move = (int) (key * 31) & 0xFFFF;
+                    table.store(key, move, (int) key, 1, TranspositionTable.EXACT);
+                    long probed = table.probe(random.nextInt(64) * buckets + random.nextInt(16));
+                    if(probed != 0 && TranspositionTable.move(probed) != ((TranspositionTable.score(probed) * 31) & 0xFFFF)) {
+                        corrupt.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, corrupt.get());
+    }
+}
@@ -0,0 +1,191 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PgnTest {
+    private static final String SCHOLARS_MATE = """
+            [Event "Casual"]
+            [Site "?"]
+            [Date "????.??.??"]
+            [Round "?"]
+            [White "?"]
+            [Black "?"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0
+
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sanNamesPiecesOnlyAsFarAsNeeded() {
+        ChessGame game = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("O-O", San.format(game, San.parse(game, "O-O")));
+        assertEquals("O-O-O", San.format(game, San.parse(game, "0-0-0")));
+        assertEquals("Rb1", San.format(game, San.parse(game, "Rab1")));
+        ChessGame twoRooks = ChessGame.fromFen("4k3/8/8/8/8/8/8/R4R1K w - - 0 1");
+        assertEquals("Rac1", San.format(twoRooks, San.parse(twoRooks, "Rac1")));
+
+        ChessGame knights = ChessGame.fromFen("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1");
+        assertThrows(IllegalArgumentException.class, () -> San.parse(knights, "Nd2"));
+        assertEquals("Nbd2", San.format(knights, San.parse(knights, "Nbd2")));
+        assertEquals("Nc3", San.format(knights, San.parse(knights, "Nbc3")));
+
+        ChessGame rooks = ChessGame.fromFen("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        assertEquals("R1a3", San.format(rooks, San.parse(rooks, "R1a3")));
+
+        ChessGame promotion = ChessGame.fromFen("1r2k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals("axb8=Q+", San.format(promotion, San.parse(promotion, "axb8Q")));
+        assertEquals("a8=N", San.format(promotion, San.parse(promotion, "a8=N!?")));
+        assertThrows(IllegalArgumentException.class, () -> San.parse(promotion, "Ke3"));
+    }
+
+    @Test
+    void everyLegalMoveRoundTrips() {
+        for(String fen : List.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3")) {
+            ChessGame game = ChessGame.fromFen(fen);
+            for(ChessMove move : game.legalMoves(game.getTeamTurn())) {
+                assertEquals(move, San.parse(game, San.format(game, move)), fen);
+            }
+            assertEquals(fen, game.toFen());
+        }
+    }
+
+    @Test
+    void writesExportFormat() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for(String san : List.of("e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6", "Qxf7#")) {
+            game.makeMove(San.parse(game, san));
+        }
+        assertEquals(SCHOLARS_MATE, PgnWriter.toPgn(new PgnGame(Map.of("Event", "Casual"), game)));
+
+        ChessGame fromFen = ChessGame.fromFen("4k3/8/8/8/8/8/4P3/4K3 b - - 0 30");
+        fromFen.makeMove(San.parse(fromFen, "Kd7"));
+        String text = PgnWriter.toPgn(new PgnGame(Map.of("Annotator", "test"), fromFen));
+        assertTrue(text.contains("[SetUp \"1\"]\n[FEN \"4k3/8/8/8/8/8/4P3/4K3 b - - 0 30\"]\n[Annotator \"test\"]\n"), text);
+        assertTrue(text.endsWith("\n30... Kd7 *\n\n"), text);
+    }
+
+    @Test
+    void historySurvivesJsonAsHex() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertFalse(new Gson().toJson(game).contains("moveHistory"));
+        for(String san : List.of("e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6", "Qxf7#")) {
+            game.makeMove(San.parse(game, san));
+        }
+        String json = new Gson().toJson(game);
+        assertTrue(json.matches(".*\"moveHistory\":\"[0-9a-f]{28}\".*"), json);
+
+        ChessGame loaded = new Gson().fromJson(json, ChessGame.class);
+        assertEquals(game.getMoveHistory(), loaded.getMoveHistory());
+        assertEquals(SCHOLARS_MATE, PgnWriter.toPgn(new PgnGame(Map.of("Event", "Casual"), loaded)));
+    }
+
+    @Test
+    void readsThroughCommentsAndVariations() throws IOException {
+        String text = """
+                [Event "First"]
+                [White "A \\"quoted\\" name"]
+
+                1. e4 {best by test} e5 (1... c5 2. Nf3 (2. c3) d6) 2. Nf3 $1 Nc6
+                ; a line comment
+                3.Bb5 a6 *
+
+                [Event "No result"]
+                1. d4 d5
+                [Event "Broken"]
+
+                1. e4 Ke7 Kd2 1-0
+                [Event "Last"]
+                [SetUp "1"]
+                [FEN "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1"]
+
+                1. e4 Kd7 1/2-1/2
+                """;
+        try(PgnReader reader = new PgnReader(new StringReader(text))) {
+            PgnGame first = reader.next();
+            assertEquals("A \"quoted\" name", first.tags().get("White"));
+            assertEquals("*", first.result());
+            assertEquals("r1bqkbnr/1ppp1ppp/p1n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 4", first.game().toFen());
+            assertEquals(6, first.game().getMoveHistory().size());
+
+            PgnGame second = reader.next();
+            assertEquals("No result", second.tags().get("Event"));
+            assertEquals(2, second.game().getMoveHistory().size());
+
+            assertThrows(IllegalArgumentException.class, reader::next);
+            PgnGame last = reader.next();
+            assertEquals("1/2-1/2", last.result());
+            assertEquals("8/3k4/8/8/4P3/8/8/4K3 w - - 1 2", last.game().toFen());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void writtenGamesReadBack() throws IOException, InvalidMoveException {
+        SplittableRandom random = new SplittableRandom(25);
+        for(int i = 0; i < 20; i++) {
+            ChessGame game = randomGame(random);
+            try(PgnReader reader = new PgnReader(new StringReader(PgnWriter.toPgn(new PgnGame(Map.of(), game))))) {
+                PgnGame read = reader.next();
+                assertEquals(game.toFen(), read.game().toFen());
+                assertEquals(game.getMoveHistory(), read.game().getMoveHistory());
+                assertNull(reader.next());
+            }
+        }
+    }
+
+    @Test
+    void readsInParallelAcrossGameBoundaries() throws IOException, InvalidMoveException {
+        SplittableRandom random = new SplittableRandom(2025);
+        StringBuilder text = new StringBuilder();
+        Map<String, String> expected = new ConcurrentHashMap<>();
+        for(int i = 0; i < 120; i++) {
+            ChessGame game = randomGame(random);
+            text.append(PgnWriter.toPgn(new PgnGame(Map.of("Event", "Game " + i), game)));
+            expected.put("Game " + i, game.toFen());
+        }
+        text.append("[Event \"Broken\"]\n\n1. e5 *\n\n");
+        Path file = directory.resolve("games.pgn");
+        Files.writeString(file, text);
+
+        Map<String, String> read = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        PgnReader.Totals totals = PgnReader.readParallel(file, pool,
+                game -> read.put(game.tags().get("Event"), game.game().toFen()), 4096);
+        pool.shutdown();
+        assertEquals(new PgnReader.Totals(120, 1), totals);
+        assertEquals(expected, read);
+    }
+
+    private static ChessGame randomGame(SplittableRandom random) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for(int ply = 0; ply < 60 && !game.getGameOver(); ply++) {
+            List<ChessMove> moves = new ArrayList<>(game.legalMoves(game.getTeamTurn()));
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+        return game;
+    }
+}